@@ -0,0 +1,423 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+/**
+ * Adaptive merge sort engine in the style of TimSort, used by 
+ * {@link Sorting}. It counts the number of inversions found in the original
+ * array.
+ * 
+ * <p>The array is scanned for natural runs. Non-descending runs are kept and
+ * strictly descending runs are reversed, adding len * (len - 1) / 2 
+ * inversions. Short runs are extended by binary insertion sort. Adjacent runs
+ * are merged following the TimSort stack invariants, and the merges gallop
+ * over blocks of elements that stay in place. Moving a block of the right run
+ * ahead of k remaining elements of the left run adds k inversions per 
+ * element, so the count stays exact while the merge skips whole blocks. 
+ * Nearly sorted input is sorted in close to linear time.
+ *
+ * @author Marcio Fonseca
+ */
+final class AdaptiveMergeSort {
+    
+    /**
+     * Shortest run built by binary insertion sort is between MIN_MERGE / 2
+     * and MIN_MERGE.
+     */
+    private static final int MIN_MERGE = 32;
+    
+    /**
+     * Number of consecutive elements taken from the same run before the 
+     * merge starts galloping.
+     */
+    private static final int MIN_GALLOP = 7;
+    
+    private final int[] array;
+    private int[] tmp = new int[0];
+    private long inversions;
+    
+    // stack of pending runs, bounded by the invariants for int lengths
+    private final int[] runBase = new int[64];
+    private final int[] runLength = new int[64];
+    private int stackSize;
+
+    private AdaptiveMergeSort(int[] array) {
+        this.array = array;
+    }
+    
+    /**
+     * Sorts the array.
+     * 
+     * @param array
+     * @return the number of inversions found in the original array.
+     */
+    static long sort(int[] array) {
+        
+        AdaptiveMergeSort engine = new AdaptiveMergeSort(array);
+        engine.sort();
+        return engine.inversions;
+    }
+    
+    private void sort() {
+        
+        int length = array.length;
+        
+        if (length < 2) {
+            return;
+        }
+        
+        int minRun = minRunLength(length);
+        int low = 0;
+        
+        while (low < length) {
+            
+            int run = countRunAndMakeAscending(low, length);
+            
+            if (run < minRun) {
+                int force = Math.min(minRun, length - low);
+                binaryInsertionSort(low, low + force, low + run);
+                run = force;
+            }
+            
+            runBase[stackSize] = low;
+            runLength[stackSize] = run;
+            stackSize++;
+            mergeCollapse();
+            
+            low += run;
+        }
+        
+        while (stackSize > 1) {
+            
+            int n = stackSize - 2;
+            
+            if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+                n--;
+            }
+            
+            mergeAt(n);
+        }
+    }
+    
+    private static int minRunLength(int length) {
+        
+        int r = 0;
+        
+        while (length >= MIN_MERGE) {
+            r |= length & 1;
+            length >>= 1;
+        }
+        
+        return length + r;
+    }
+    
+    /**
+     * Returns the length of the run starting at low, reversing it when it is
+     * strictly descending.
+     * 
+     * @param low
+     * @param high exclusive
+     * @return 
+     */
+    private int countRunAndMakeAscending(int low, int high) {
+        
+        int runHigh = low + 1;
+        
+        if (runHigh == high) {
+            return 1;
+        }
+        
+        if (array[runHigh++] < array[low]) {
+            
+            while (runHigh < high && array[runHigh] < array[runHigh - 1]) {
+                runHigh++;
+            }
+            
+            reverse(low, runHigh - 1);
+            
+            long length = runHigh - low;
+            inversions += length * (length - 1) / 2;
+            
+        } else {
+            
+            while (runHigh < high && array[runHigh] >= array[runHigh - 1]) {
+                runHigh++;
+            }
+        }
+        
+        return runHigh - low;
+    }
+    
+    private void reverse(int low, int high) {
+        
+        while (low < high) {
+            int aux = array[low];
+            array[low++] = array[high];
+            array[high--] = aux;
+        }
+    }
+    
+    /**
+     * Sorts array[low, high) given that array[low, start) is already sorted.
+     */
+    private void binaryInsertionSort(int low, int high, int start) {
+        
+        for (int i = start; i < high; i++) {
+            
+            int value = array[i];
+            int position = low + gallopRight(value, array, low, i - low);
+            
+            inversions += i - position;
+            System.arraycopy(array, position, array, position + 1, 
+                    i - position);
+            array[position] = value;
+        }
+    }
+    
+    /**
+     * Merges adjacent runs on the stack until the invariants 
+     * runLength[i - 2] > runLength[i - 1] + runLength[i] and 
+     * runLength[i - 1] > runLength[i] hold for the top runs.
+     */
+    private void mergeCollapse() {
+        
+        while (stackSize > 1) {
+            
+            int n = stackSize - 2;
+            
+            if (n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1]
+                    || n > 1 
+                    && runLength[n - 2] <= runLength[n] + runLength[n - 1]) {
+                
+                if (runLength[n - 1] < runLength[n + 1]) {
+                    n--;
+                }
+                
+            } else if (runLength[n] > runLength[n + 1]) {
+                break;
+            }
+            
+            mergeAt(n);
+        }
+    }
+    
+    /**
+     * Merges the runs at stack positions i and i + 1.
+     * 
+     * @param i 
+     */
+    private void mergeAt(int i) {
+        
+        int base1 = runBase[i];
+        int length1 = runLength[i];
+        int base2 = runBase[i + 1];
+        int length2 = runLength[i + 1];
+        
+        runLength[i] = length1 + length2;
+        
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLength[i + 1] = runLength[i + 2];
+        }
+        
+        stackSize--;
+        
+        // elements of the left run not greater than the first element of 
+        // the right run are already in place
+        int skip = gallopRight(array[base2], array, base1, length1);
+        base1 += skip;
+        length1 -= skip;
+        
+        if (length1 == 0) {
+            return;
+        }
+        
+        // elements of the right run not less than the last element of the 
+        // left run are already in place and add no inversions
+        length2 = gallopLeft(array[base1 + length1 - 1], array, base2, 
+                length2);
+        
+        if (length2 == 0) {
+            return;
+        }
+        
+        merge(base1, length1, base2, length2);
+    }
+    
+    /**
+     * Merges the left run, copied to the temporary buffer, with the right 
+     * run, which stays in the array.
+     */
+    private void merge(int base1, int length1, int base2, int length2) {
+        
+        if (tmp.length < length1) {
+            tmp = new int[Math.max(length1, Math.min(array.length, 
+                    2 * tmp.length))];
+        }
+        
+        System.arraycopy(array, base1, tmp, 0, length1);
+        
+        int i = 0;
+        int j = base2;
+        int k = base1;
+        int end2 = base2 + length2;
+        
+        outer:
+        while (true) {
+            
+            int count1 = 0;
+            int count2 = 0;
+            
+            do {
+                
+                if (array[j] < tmp[i]) {
+                    
+                    array[k++] = array[j++];
+                    inversions += length1 - i;
+                    count2++;
+                    count1 = 0;
+                    
+                    if (j == end2) {
+                        break outer;
+                    }
+                    
+                } else {
+                    
+                    array[k++] = tmp[i++];
+                    count1++;
+                    count2 = 0;
+                    
+                    if (i == length1) {
+                        break outer;
+                    }
+                }
+                
+            } while ((count1 | count2) < MIN_GALLOP);
+            
+            do {
+                
+                count1 = gallopRight(array[j], tmp, i, length1 - i);
+                System.arraycopy(tmp, i, array, k, count1);
+                i += count1;
+                k += count1;
+                
+                if (i == length1) {
+                    break outer;
+                }
+                
+                count2 = gallopLeft(tmp[i], array, j, end2 - j);
+                System.arraycopy(array, j, array, k, count2);
+                inversions += (long) count2 * (length1 - i);
+                j += count2;
+                k += count2;
+                
+                if (j == end2) {
+                    break outer;
+                }
+                
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+        }
+        
+        // the rest of the right run is already in place
+        System.arraycopy(tmp, i, array, k, length1 - i);
+    }
+    
+    /**
+     * Returns the number of elements in a[base, base + length) that are less
+     * than or equal to the key, using exponential search from the start.
+     */
+    private static int gallopRight(int key, int[] a, int base, int length) {
+        
+        if (length == 0 || a[base] > key) {
+            return 0;
+        }
+        
+        int low = 0;
+        int high = 1;
+        
+        while (high < length && a[base + high] <= key) {
+            low = high;
+            high = (high << 1) + 1;
+            
+            if (high <= 0) {
+                high = length;
+            }
+        }
+        
+        high = Math.min(high, length);
+        low++;
+        
+        while (low < high) {
+            
+            int mid = (low + high) >>> 1;
+            
+            if (a[base + mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Returns the number of elements in a[base, base + length) that are less
+     * than the key, using exponential search from the start.
+     */
+    private static int gallopLeft(int key, int[] a, int base, int length) {
+        
+        if (length == 0 || a[base] >= key) {
+            return 0;
+        }
+        
+        int low = 0;
+        int high = 1;
+        
+        while (high < length && a[base + high] < key) {
+            low = high;
+            high = (high << 1) + 1;
+            
+            if (high <= 0) {
+                high = length;
+            }
+        }
+        
+        high = Math.min(high, length);
+        low++;
+        
+        while (low < high) {
+            
+            int mid = (low + high) >>> 1;
+            
+            if (a[base + mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+}
@@ -23,7 +23,7 @@
  */
 package com.anywarelabs.algorithms;
 
-import com.anywarelabs.algorithms.datastructures.Graph;
+import com.anywarelabs.algorithms.datastructures.TraversableGraph;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
@@ -37,7 +37,7 @@ public class DFS extends GraphSearch {
     private Stack<Integer> stack;
     private List<Integer> postOrder;
 
-    public DFS(Graph g) {
+    public DFS(TraversableGraph g) {
         super(g);
     }
 
@@ -0,0 +1,1144 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import com.anywarelabs.algorithms.Sorting.PivotStrategy;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Introsort-style dual-pivot quicksort engine used by {@link Sorting}.
+ * 
+ * <p>Ranges are split in three parts around two pivots. Small ranges are
+ * finished by insertion sort and ranges that exceed the recursion depth limit
+ * fall back to heapsort, so the running time is O(n log n) regardless of the
+ * pivot strategy or the input order. Every comparison between elements is
+ * counted.
+ *
+ * @author Marcio Fonseca
+ */
+final class DualPivotQuicksort {
+    
+    /**
+     * Ranges with less elements than this threshold are sorted by insertion
+     * sort.
+     */
+    static final int INSERTION_SORT_THRESHOLD = 27;
+    
+    private final PivotStrategy pivotStrategy;
+    private final SortStats stats;
+    private long comparisons;
+    private int depthLimit;
+    
+    // output of the last partitioning step
+    private int lowerPivotIndex;
+    private int upperPivotIndex;
+    private int less;
+    private int great;
+
+    DualPivotQuicksort(PivotStrategy pivotStrategy) {
+        this(pivotStrategy, null);
+    }
+    
+    /**
+     * @param pivotStrategy
+     * @param stats receives the recursion depth, the partition imbalance 
+     * and the swaps of each step of int array sorts, or null to skip 
+     * collecting them
+     */
+    DualPivotQuicksort(PivotStrategy pivotStrategy, SortStats stats) {
+        this.pivotStrategy = pivotStrategy;
+        this.stats = stats;
+    }
+    
+    long getComparisons() {
+        return comparisons;
+    }
+    
+    /**
+     * Adds element exchanges to the stats, if they are collected. The hot 
+     * loops never count exchanges: they are derived from the final 
+     * positions of the loop indices, and only when stats are on.
+     */
+    private void countSwaps(long count) {
+        
+        if (stats != null) {
+            stats.addSwaps(count);
+        }
+    }
+    
+    /**
+     * Returns the maximum recursion depth allowed before falling back to 
+     * heapsort: 2 * floor(log2(length)).
+     * 
+     * @param length
+     * @return 
+     */
+    static int depthLimit(int length) {
+        return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(length, 1)));
+    }
+    
+    void sort(int[] array, int low, int high) {
+        depthLimit = depthLimit(high - low + 1);
+        sort(array, low, high, depthLimit);
+    }
+    
+    private void sort(int[] array, int low, int high, int depth) {
+        
+        if (stats != null && low <= high) {
+            stats.recordDepth(depthLimit - depth);
+        }
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+        
+        if (depth == 0) {
+            
+            if (stats != null) {
+                stats.recordHeapsortFallback();
+            }
+            
+            heapSort(array, low, high);
+            return;
+        }
+        
+        partition(array, low, high);
+        
+        // fields are overwritten by the recursive calls
+        int lowerPivot = lowerPivotIndex;
+        int upperPivot = upperPivotIndex;
+        int middleStart = less;
+        int middleEnd = great;
+        
+        if (stats != null) {
+            stats.recordPartition(high - low + 1, Math.max(lowerPivot - low,
+                    Math.max(upperPivot - lowerPivot - 1, high - upperPivot)));
+        }
+        
+        sort(array, low, lowerPivot - 1, depth - 1);
+        sort(array, upperPivot + 1, high, depth - 1);
+        sort(array, middleStart, middleEnd, depth - 1);
+    }
+    
+    /**
+     * Fork/join task that sorts a range of an int array. Ranges larger than
+     * the granularity are partitioned and their three parts are sorted by 
+     * subtasks. Each task counts its own comparisons and the counts are 
+     * summed when the subtasks are joined, so workers never share a counter.
+     */
+    static final class SortTask extends RecursiveTask<Long> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] array;
+        private final int low;
+        private final int high;
+        private final int depth;
+        private final int granularity;
+        private final PivotStrategy pivotStrategy;
+
+        SortTask(int[] array, int low, int high, PivotStrategy pivotStrategy,
+                int granularity) {
+            this(array, low, high, depthLimit(high - low + 1), pivotStrategy,
+                    granularity);
+        }
+        
+        private SortTask(int[] array, int low, int high, int depth,
+                PivotStrategy pivotStrategy, int granularity) {
+            this.array = array;
+            this.low = low;
+            this.high = high;
+            this.depth = depth;
+            this.pivotStrategy = pivotStrategy;
+            this.granularity = Math.max(granularity, INSERTION_SORT_THRESHOLD);
+        }
+        
+        @Override
+        protected Long compute() {
+            
+            DualPivotQuicksort engine = new DualPivotQuicksort(pivotStrategy);
+            
+            if (high - low < granularity || depth == 0) {
+                engine.sort(array, low, high, depth);
+                return engine.comparisons;
+            }
+            
+            engine.partition(array, low, high);
+            
+            SortTask left = new SortTask(array, low, 
+                    engine.lowerPivotIndex - 1, depth - 1, pivotStrategy, 
+                    granularity);
+            SortTask right = new SortTask(array, engine.upperPivotIndex + 1,
+                    high, depth - 1, pivotStrategy, granularity);
+            SortTask middle = new SortTask(array, engine.less, engine.great,
+                    depth - 1, pivotStrategy, granularity);
+            
+            left.fork();
+            right.fork();
+            
+            long comparisons = engine.comparisons + middle.compute();
+            comparisons += right.join();
+            comparisons += left.join();
+            
+            return comparisons;
+        }
+    }
+    
+    /**
+     * Partitions the range around two pivots p1 <= p2. On return the elements
+     * in [low, lowerPivotIndex) are less than p1, the elements in 
+     * (upperPivotIndex, high] are greater than p2 and the elements in 
+     * [less, great] still need sorting. Elements equal to the pivots are 
+     * moved next to them when the central part is large, so inputs with many
+     * duplicates are handled in linear time.
+     * 
+     * @param array
+     * @param low
+     * @param high 
+     */
+    void partition(int[] array, int low, int high) {
+        choosePivots(array, low, high);
+        partitionAroundEnds(array, low, high);
+    }
+    
+    /**
+     * Partitions the range around the elements at the given distinct 
+     * indices, with the same contract as {@link #partition(int[], int, int)}.
+     * 
+     * @param array
+     * @param low
+     * @param high
+     * @param pivot1 index of the first pivot
+     * @param pivot2 index of the second pivot
+     */
+    void partition(int[] array, int low, int high, int pivot1, int pivot2) {
+        
+        swap(array, pivot1, low);
+        
+        if (pivot2 == low) {
+            pivot2 = pivot1;
+        }
+        
+        swap(array, pivot2, high);
+        countSwaps(2);
+        
+        comparisons++;
+        if (array[low] > array[high]) {
+            swap(array, low, high);
+            countSwaps(1);
+        }
+        
+        partitionAroundEnds(array, low, high);
+    }
+    
+    private void partitionAroundEnds(int[] array, int low, int high) {
+        
+        int p1 = array[low];
+        int p2 = array[high];
+        int lt = low + 1;
+        int gt = high - 1;
+        int k = lt;
+        long count = 0;
+        
+        while (k <= gt) {
+            
+            count++;
+            if (array[k] < p1) {
+                swap(array, k++, lt++);
+                continue;
+            }
+            
+            count++;
+            if (array[k] > p2) {
+                swap(array, k, gt--);
+                
+            } else {
+                k++;
+            }
+        }
+        
+        // place pivots in the right place
+        swap(array, low, --lt);
+        swap(array, high, ++gt);
+        
+        lowerPivotIndex = lt;
+        upperPivotIndex = gt;
+        
+        // each exchange moved lt up or gt down by one, plus the two pivots
+        countSwaps(2 + (lt - low) + (high - gt));
+        
+        count++;
+        if (p1 == p2) {
+            // all elements in the central part are equal to the pivots
+            less = gt;
+            great = gt - 1;
+            
+        } else if (gt - lt - 1 > (high - low) / 3 * 2) {
+            
+            int i = lt + 1;
+            int j = gt - 1;
+            k = i;
+            
+            while (k <= j) {
+                
+                count++;
+                if (array[k] == p1) {
+                    swap(array, k++, i++);
+                    continue;
+                }
+                
+                count++;
+                if (array[k] == p2) {
+                    swap(array, k, j--);
+                    
+                } else {
+                    k++;
+                }
+            }
+            
+            countSwaps((i - lt - 1) + (gt - 1 - j));
+            less = i;
+            great = j;
+            
+        } else {
+            less = lt + 1;
+            great = gt - 1;
+        }
+        
+        comparisons += count;
+    }
+    
+    /**
+     * Introselect: partially sorts the range so that array[k] holds the 
+     * element that would be there if the range were sorted, with smaller or
+     * equal elements before it and greater or equal elements after it. When 
+     * two consecutive partitioning steps fail to halve the range, the pivots
+     * are chosen by the median-of-medians rule, which guarantees linear time.
+     * 
+     * @param array
+     * @param low
+     * @param high
+     * @param k index of the element to select, in [low, high]
+     * @return the selected element
+     */
+    int select(int[] array, int low, int high, int k) {
+        
+        boolean medianOfMedians = false;
+        int checkpointLength = high - low + 1;
+        int steps = 0;
+        
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            
+            if (medianOfMedians) {
+                partitionWithMedianOfMedians(array, low, high);
+                
+            } else {
+                partition(array, low, high);
+            }
+            
+            if (k < lowerPivotIndex) {
+                high = lowerPivotIndex - 1;
+                
+            } else if (k > upperPivotIndex) {
+                low = upperPivotIndex + 1;
+                
+            } else if (k < less || k > great) {
+                // k holds a pivot or an element equal to a pivot
+                return array[k];
+                
+            } else {
+                low = less;
+                high = great;
+            }
+            
+            if (++steps == 2) {
+                
+                medianOfMedians = high - low + 1 > checkpointLength / 2;
+                checkpointLength = high - low + 1;
+                steps = 0;
+            }
+        }
+        
+        insertionSort(array, low, high);
+        return array[k];
+    }
+    
+    /**
+     * Selects several order statistics at once. Each partitioning step sends
+     * the ranks to the part that contains them, so the parts without ranks 
+     * are never touched.
+     * 
+     * @param array
+     * @param low
+     * @param high
+     * @param ranks indices to select, sorted in ascending order
+     * @param first first rank in [low, high]
+     * @param last last rank in [low, high], inclusive
+     * @param depth number of partitioning steps left before falling back to
+     * the median-of-medians rule
+     */
+    void select(int[] array, int low, int high, int[] ranks, int first,
+            int last, int depth) {
+        
+        if (first > last) {
+            return;
+        }
+        
+        if (first == last) {
+            select(array, low, high, ranks[first]);
+            return;
+        }
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+        
+        if (depth > 0) {
+            partition(array, low, high);
+            
+        } else {
+            partitionWithMedianOfMedians(array, low, high);
+        }
+        
+        int lowerPivot = lowerPivotIndex;
+        int upperPivot = upperPivotIndex;
+        int middleStart = less;
+        int middleEnd = great;
+        
+        int i = first;
+        while (i <= last && ranks[i] < lowerPivot) {
+            i++;
+        }
+        
+        int j = i;
+        while (j <= last && ranks[j] < middleStart) {
+            j++;
+        }
+        
+        int m = j;
+        while (m <= last && ranks[m] <= middleEnd) {
+            m++;
+        }
+        
+        int r = m;
+        while (r <= last && ranks[r] <= upperPivot) {
+            r++;
+        }
+        
+        select(array, low, lowerPivot - 1, ranks, first, i - 1, depth - 1);
+        select(array, middleStart, middleEnd, ranks, j, m - 1, depth - 1);
+        select(array, upperPivot + 1, high, ranks, r, last, depth - 1);
+    }
+    
+    /**
+     * Partitions the range using the median of medians as one of the pivots 
+     * and the last element as the other. Whichever pivot is the median of 
+     * medians, each of the three parts gets at most about 70% of the range.
+     * 
+     * @param array
+     * @param low
+     * @param high 
+     */
+    private void partitionWithMedianOfMedians(int[] array, int low, int high) {
+        partition(array, low, high, medianOfMedians(array, low, high), high);
+    }
+    
+    /**
+     * Moves the medians of the groups of five elements of the range to its
+     * beginning and selects their median.
+     * 
+     * @param array
+     * @param low
+     * @param high
+     * @return the index of the median of medians
+     */
+    private int medianOfMedians(int[] array, int low, int high) {
+        
+        int medians = low;
+        
+        for (int start = low; start <= high; start += 5) {
+            
+            int end = Math.min(start + 4, high);
+            insertionSort(array, start, end);
+            swap(array, medians++, (start + end) >>> 1);
+        }
+        
+        int middle = (low + medians - 1) >>> 1;
+        select(array, low, medians - 1, middle);
+        
+        return middle;
+    }
+    
+    /**
+     * Moves the pivots chosen by the pivot strategy to the ends of the range,
+     * with the smaller one at the low end. The median-of-three rule is 
+     * generalized to the tertiles of five evenly spaced samples.
+     * 
+     * @param array
+     * @param low
+     * @param high 
+     */
+    private void choosePivots(int[] array, int low, int high) {
+        
+        if (pivotStrategy == PivotStrategy.FIRST) {
+            swap(array, low + 1, high);
+            countSwaps(1);
+        
+        } else if (pivotStrategy == PivotStrategy.LAST) {
+            swap(array, high - 1, low);
+            countSwaps(1);
+        
+        } else { // MEDIAN_OF_THREE
+            
+            int length = high - low + 1;
+            int seventh = (length >> 3) + (length >> 6) + 1;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - seventh;
+            int e1 = e2 - seventh;
+            int e4 = e3 + seventh;
+            int e5 = e4 + seventh;
+            
+            sortSamples(array, e1, e2, e3, e4, e5);
+            swap(array, e2, low);
+            swap(array, e4, high);
+            countSwaps(2);
+        }
+        
+        comparisons++;
+        if (array[low] > array[high]) {
+            swap(array, low, high);
+            countSwaps(1);
+        }
+    }
+    
+    /**
+     * Sorts five samples in place with a fixed sequence of compare-and-swap 
+     * steps.
+     */
+    private void sortSamples(int[] array, int e1, int e2, int e3, int e4,
+            int e5) {
+        
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e3, e4);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e4, e5);
+        compareAndSwap(array, e3, e4);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+    }
+    
+    private void compareAndSwap(int[] array, int i, int j) {
+        
+        comparisons++;
+        if (array[i] > array[j]) {
+            swap(array, i, j);
+            countSwaps(1);
+        }
+    }
+    
+    private void insertionSort(int[] array, int low, int high) {
+        
+        long count = 0;
+        
+        for (int i = low + 1; i <= high; i++) {
+            
+            int value = array[i];
+            int j = i - 1;
+            
+            while (j >= low) {
+                
+                count++;
+                if (array[j] <= value) {
+                    break;
+                }
+                
+                array[j + 1] = array[j];
+                j--;
+            }
+            
+            array[j + 1] = value;
+            
+            // the value was shifted past the elements in (j, i)
+            if (stats != null) {
+                stats.addSwaps(i - 1 - j);
+            }
+        }
+        
+        comparisons += count;
+    }
+    
+    private void heapSort(int[] array, int low, int high) {
+        
+        int length = high - low + 1;
+        
+        for (int i = (length >>> 1) - 1; i >= 0; i--) {
+            siftDown(array, low, i, length);
+        }
+        
+        for (int end = length - 1; end > 0; end--) {
+            swap(array, low, low + end);
+            siftDown(array, low, 0, end);
+        }
+        
+        countSwaps(Math.max(length - 1, 0));
+    }
+    
+    private void siftDown(int[] array, int base, int i, int length) {
+        
+        int value = array[base + i];
+        int start = i;
+        long count = 0;
+        
+        while (true) {
+            
+            int child = 2 * i + 1;
+            
+            if (child >= length) {
+                break;
+            }
+            
+            if (child + 1 < length) {
+                count++;
+                if (array[base + child] < array[base + child + 1]) {
+                    child++;
+                }
+            }
+            
+            count++;
+            if (value >= array[base + child]) {
+                break;
+            }
+            
+            array[base + i] = array[base + child];
+            i = child;
+        }
+        
+        array[base + i] = value;
+        comparisons += count;
+        
+        // each shift moved the hole one level down the heap
+        if (stats != null) {
+            stats.addSwaps(Integer.numberOfLeadingZeros(start + 1) 
+                    - Integer.numberOfLeadingZeros(i + 1));
+        }
+    }
+    
+    private static void swap(int[] array, int i, int j) {
+        int aux = array[i];
+        array[i] = array[j];
+        array[j] = aux;
+    }
+    
+    void sort(long[] array, int low, int high) {
+        sort(array, low, high, depthLimit(high - low + 1));
+    }
+    
+    private void sort(long[] array, int low, int high, int depth) {
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+        
+        if (depth == 0) {
+            heapSort(array, low, high);
+            return;
+        }
+        
+        partition(array, low, high);
+        
+        int lowerPivot = lowerPivotIndex;
+        int upperPivot = upperPivotIndex;
+        int middleStart = less;
+        int middleEnd = great;
+        
+        sort(array, low, lowerPivot - 1, depth - 1);
+        sort(array, upperPivot + 1, high, depth - 1);
+        sort(array, middleStart, middleEnd, depth - 1);
+    }
+    
+    void partition(long[] array, int low, int high) {
+        
+        choosePivots(array, low, high);
+        
+        long p1 = array[low];
+        long p2 = array[high];
+        int lt = low + 1;
+        int gt = high - 1;
+        int k = lt;
+        long count = 0;
+        
+        while (k <= gt) {
+            
+            count++;
+            if (array[k] < p1) {
+                swap(array, k++, lt++);
+                continue;
+            }
+            
+            count++;
+            if (array[k] > p2) {
+                swap(array, k, gt--);
+                
+            } else {
+                k++;
+            }
+        }
+        
+        // place pivots in the right place
+        swap(array, low, --lt);
+        swap(array, high, ++gt);
+        
+        lowerPivotIndex = lt;
+        upperPivotIndex = gt;
+        
+        count++;
+        if (p1 == p2) {
+            // all elements in the central part are equal to the pivots
+            less = gt;
+            great = gt - 1;
+            
+        } else if (gt - lt - 1 > (high - low) / 3 * 2) {
+            
+            int i = lt + 1;
+            int j = gt - 1;
+            k = i;
+            
+            while (k <= j) {
+                
+                count++;
+                if (array[k] == p1) {
+                    swap(array, k++, i++);
+                    continue;
+                }
+                
+                count++;
+                if (array[k] == p2) {
+                    swap(array, k, j--);
+                    
+                } else {
+                    k++;
+                }
+            }
+            
+            less = i;
+            great = j;
+            
+        } else {
+            less = lt + 1;
+            great = gt - 1;
+        }
+        
+        comparisons += count;
+    }
+    
+    private void choosePivots(long[] array, int low, int high) {
+        
+        if (pivotStrategy == PivotStrategy.FIRST) {
+            swap(array, low + 1, high);
+        
+        } else if (pivotStrategy == PivotStrategy.LAST) {
+            swap(array, high - 1, low);
+        
+        } else { // MEDIAN_OF_THREE
+            
+            int length = high - low + 1;
+            int seventh = (length >> 3) + (length >> 6) + 1;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - seventh;
+            int e1 = e2 - seventh;
+            int e4 = e3 + seventh;
+            int e5 = e4 + seventh;
+            
+            sortSamples(array, e1, e2, e3, e4, e5);
+            swap(array, e2, low);
+            swap(array, e4, high);
+        }
+        
+        comparisons++;
+        if (array[low] > array[high]) {
+            swap(array, low, high);
+        }
+    }
+    
+    private void sortSamples(long[] array, int e1, int e2, int e3, int e4,
+            int e5) {
+        
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e3, e4);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e4, e5);
+        compareAndSwap(array, e3, e4);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+    }
+    
+    private void compareAndSwap(long[] array, int i, int j) {
+        
+        comparisons++;
+        if (array[i] > array[j]) {
+            swap(array, i, j);
+        }
+    }
+    
+    private void insertionSort(long[] array, int low, int high) {
+        
+        long count = 0;
+        
+        for (int i = low + 1; i <= high; i++) {
+            
+            long value = array[i];
+            int j = i - 1;
+            
+            while (j >= low) {
+                
+                count++;
+                if (array[j] <= value) {
+                    break;
+                }
+                
+                array[j + 1] = array[j];
+                j--;
+            }
+            
+            array[j + 1] = value;
+        }
+        
+        comparisons += count;
+    }
+    
+    private void heapSort(long[] array, int low, int high) {
+        
+        int length = high - low + 1;
+        
+        for (int i = (length >>> 1) - 1; i >= 0; i--) {
+            siftDown(array, low, i, length);
+        }
+        
+        for (int end = length - 1; end > 0; end--) {
+            swap(array, low, low + end);
+            siftDown(array, low, 0, end);
+        }
+    }
+    
+    private void siftDown(long[] array, int base, int i, int length) {
+        
+        long value = array[base + i];
+        long count = 0;
+        
+        while (true) {
+            
+            int child = 2 * i + 1;
+            
+            if (child >= length) {
+                break;
+            }
+            
+            if (child + 1 < length) {
+                count++;
+                if (array[base + child] < array[base + child + 1]) {
+                    child++;
+                }
+            }
+            
+            count++;
+            if (value >= array[base + child]) {
+                break;
+            }
+            
+            array[base + i] = array[base + child];
+            i = child;
+        }
+        
+        array[base + i] = value;
+        comparisons += count;
+    }
+    
+    private static void swap(long[] array, int i, int j) {
+        long aux = array[i];
+        array[i] = array[j];
+        array[j] = aux;
+    }
+    
+    /**
+     * Sorts the range of a double array. NaN values are moved to the end of 
+     * the range, since they are not ordered by the comparison operators, and 
+     * -0.0 is treated as equal to 0.0.
+     * 
+     * @param array
+     * @param low
+     * @param high 
+     */
+    void sort(double[] array, int low, int high) {
+        
+        int end = high;
+        
+        for (int k = high; k >= low; k--) {
+            
+            if (Double.isNaN(array[k])) {
+                swap(array, k, end--);
+            }
+        }
+        
+        sort(array, low, end, depthLimit(end - low + 1));
+    }
+    
+    private void sort(double[] array, int low, int high, int depth) {
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+        
+        if (depth == 0) {
+            heapSort(array, low, high);
+            return;
+        }
+        
+        partition(array, low, high);
+        
+        int lowerPivot = lowerPivotIndex;
+        int upperPivot = upperPivotIndex;
+        int middleStart = less;
+        int middleEnd = great;
+        
+        sort(array, low, lowerPivot - 1, depth - 1);
+        sort(array, upperPivot + 1, high, depth - 1);
+        sort(array, middleStart, middleEnd, depth - 1);
+    }
+    
+    void partition(double[] array, int low, int high) {
+        
+        choosePivots(array, low, high);
+        
+        double p1 = array[low];
+        double p2 = array[high];
+        int lt = low + 1;
+        int gt = high - 1;
+        int k = lt;
+        long count = 0;
+        
+        while (k <= gt) {
+            
+            count++;
+            if (array[k] < p1) {
+                swap(array, k++, lt++);
+                continue;
+            }
+            
+            count++;
+            if (array[k] > p2) {
+                swap(array, k, gt--);
+                
+            } else {
+                k++;
+            }
+        }
+        
+        // place pivots in the right place
+        swap(array, low, --lt);
+        swap(array, high, ++gt);
+        
+        lowerPivotIndex = lt;
+        upperPivotIndex = gt;
+        
+        count++;
+        if (p1 == p2) {
+            // all elements in the central part are equal to the pivots
+            less = gt;
+            great = gt - 1;
+            
+        } else if (gt - lt - 1 > (high - low) / 3 * 2) {
+            
+            int i = lt + 1;
+            int j = gt - 1;
+            k = i;
+            
+            while (k <= j) {
+                
+                count++;
+                if (array[k] == p1) {
+                    swap(array, k++, i++);
+                    continue;
+                }
+                
+                count++;
+                if (array[k] == p2) {
+                    swap(array, k, j--);
+                    
+                } else {
+                    k++;
+                }
+            }
+            
+            less = i;
+            great = j;
+            
+        } else {
+            less = lt + 1;
+            great = gt - 1;
+        }
+        
+        comparisons += count;
+    }
+    
+    private void choosePivots(double[] array, int low, int high) {
+        
+        if (pivotStrategy == PivotStrategy.FIRST) {
+            swap(array, low + 1, high);
+        
+        } else if (pivotStrategy == PivotStrategy.LAST) {
+            swap(array, high - 1, low);
+        
+        } else { // MEDIAN_OF_THREE
+            
+            int length = high - low + 1;
+            int seventh = (length >> 3) + (length >> 6) + 1;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - seventh;
+            int e1 = e2 - seventh;
+            int e4 = e3 + seventh;
+            int e5 = e4 + seventh;
+            
+            sortSamples(array, e1, e2, e3, e4, e5);
+            swap(array, e2, low);
+            swap(array, e4, high);
+        }
+        
+        comparisons++;
+        if (array[low] > array[high]) {
+            swap(array, low, high);
+        }
+    }
+    
+    private void sortSamples(double[] array, int e1, int e2, int e3, int e4,
+            int e5) {
+        
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e3, e4);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+        compareAndSwap(array, e4, e5);
+        compareAndSwap(array, e3, e4);
+        compareAndSwap(array, e2, e3);
+        compareAndSwap(array, e1, e2);
+    }
+    
+    private void compareAndSwap(double[] array, int i, int j) {
+        
+        comparisons++;
+        if (array[i] > array[j]) {
+            swap(array, i, j);
+        }
+    }
+    
+    private void insertionSort(double[] array, int low, int high) {
+        
+        long count = 0;
+        
+        for (int i = low + 1; i <= high; i++) {
+            
+            double value = array[i];
+            int j = i - 1;
+            
+            while (j >= low) {
+                
+                count++;
+                if (array[j] <= value) {
+                    break;
+                }
+                
+                array[j + 1] = array[j];
+                j--;
+            }
+            
+            array[j + 1] = value;
+        }
+        
+        comparisons += count;
+    }
+    
+    private void heapSort(double[] array, int low, int high) {
+        
+        int length = high - low + 1;
+        
+        for (int i = (length >>> 1) - 1; i >= 0; i--) {
+            siftDown(array, low, i, length);
+        }
+        
+        for (int end = length - 1; end > 0; end--) {
+            swap(array, low, low + end);
+            siftDown(array, low, 0, end);
+        }
+    }
+    
+    private void siftDown(double[] array, int base, int i, int length) {
+        
+        double value = array[base + i];
+        long count = 0;
+        
+        while (true) {
+            
+            int child = 2 * i + 1;
+            
+            if (child >= length) {
+                break;
+            }
+            
+            if (child + 1 < length) {
+                count++;
+                if (array[base + child] < array[base + child + 1]) {
+                    child++;
+                }
+            }
+            
+            count++;
+            if (value >= array[base + child]) {
+                break;
+            }
+            
+            array[base + i] = array[base + child];
+            i = child;
+        }
+        
+        array[base + i] = value;
+        comparisons += count;
+    }
+    
+    private static void swap(double[] array, int i, int j) {
+        double aux = array[i];
+        array[i] = array[j];
+        array[j] = aux;
+    }
+}
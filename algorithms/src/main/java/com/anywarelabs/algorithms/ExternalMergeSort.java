@@ -0,0 +1,584 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import com.anywarelabs.algorithms.datastructures.FenwickTree;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * External merge sort for text files of integers, such as 
+ * IntegerArray.txt, that do not fit in memory. It counts the number of 
+ * inversions found in the original file.
+ * 
+ * <p>The input is read in chunks that fit in the memory budget. Each chunk is
+ * sorted by {@link MergeSort}, which counts the inversions inside the chunk, 
+ * and spilled as a binary run to a temporary file. Runs are then k-way merged
+ * with a heap. When an element is taken from a run, the elements still left 
+ * in the runs that precede it in the original file are all greater than it, 
+ * so the cross inversions are counted by a {@link FenwickTree} of the 
+ * remaining run sizes. Consecutive runs are merged in several passes when 
+ * the budget cannot hold a buffer for every run.
+ *
+ * @author Marcio Fonseca
+ */
+public class ExternalMergeSort {
+    
+    /**
+     * Size in bytes of the I/O buffer used for each file.
+     */
+    public static final int BLOCK_SIZE = 1 << 16;
+    
+    private final long memoryBudget;
+    private final Path tempDirectory;
+
+    /**
+     * @param memoryBudget approximate number of bytes used for data
+     */
+    public ExternalMergeSort(long memoryBudget) {
+        this(memoryBudget, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+    
+    /**
+     * @param memoryBudget approximate number of bytes used for data
+     * @param tempDirectory directory where the runs are spilled
+     */
+    public ExternalMergeSort(long memoryBudget, Path tempDirectory) {
+        
+        if (memoryBudget < 4 * BLOCK_SIZE) {
+            throw new IllegalArgumentException(
+                    "Memory budget must be at least " + 4 * BLOCK_SIZE 
+                            + " bytes: " + memoryBudget);
+        }
+        
+        this.memoryBudget = memoryBudget;
+        this.tempDirectory = tempDirectory;
+    }
+    
+    /**
+     * Sorts the integers of the input file, separated by white space, and 
+     * writes them to the output file, one per line.
+     * 
+     * @param input
+     * @param output
+     * @return the number of inversions found in the input file.
+     * @throws IOException 
+     */
+    public long sort(Path input, Path output) throws IOException {
+        
+        // every temporary file is deleted at the end, even on failures
+        List<Run> created = new ArrayList<>();
+        
+        try {
+            long inversions = createRuns(input, created);
+            List<Run> runs = new ArrayList<>(created);
+            int fanIn = (int) Math.min(Integer.MAX_VALUE - 1, 
+                    Math.max(2, memoryBudget / BLOCK_SIZE - 1));
+            
+            while (runs.size() > fanIn) {
+                
+                List<Run> merged = new ArrayList<>();
+                
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    
+                    List<Run> group = runs.subList(i, 
+                            Math.min(i + fanIn, runs.size()));
+                    Run run = createRun();
+                    created.add(run);
+                    merged.add(run);
+                    
+                    try (RunWriter writer = new RunWriter(run)) {
+                        inversions += merge(group, writer);
+                    }
+                    
+                    for (Run r : group) {
+                        Files.deleteIfExists(r.path);
+                    }
+                }
+                
+                runs = merged;
+            }
+            
+            try (TextWriter writer = new TextWriter(output)) {
+                inversions += merge(runs, writer);
+            }
+            
+            return inversions;
+            
+        } finally {
+            
+            for (Run run : created) {
+                Files.deleteIfExists(run.path);
+            }
+        }
+    }
+    
+    private Run createRun() throws IOException {
+        return new Run(Files.createTempFile(tempDirectory, "run", ".bin"));
+    }
+    
+    /**
+     * Splits the input in sorted runs.
+     * 
+     * @param input
+     * @param runs list that receives the runs, in the input order
+     * @return the number of inversions found inside the runs.
+     * @throws IOException 
+     */
+    private long createRuns(Path input, List<Run> runs) throws IOException {
+        
+        // a chunk and the merge sort buffer must fit in the budget
+        int chunkSize = (int) Math.min(Integer.MAX_VALUE - 8,
+                (memoryBudget - 2 * BLOCK_SIZE) / (2 * Integer.BYTES));
+        int[] chunk = new int[chunkSize];
+        int[] buffer = new int[chunkSize];
+        long inversions = 0;
+        
+        try (TextReader reader = new TextReader(input)) {
+            
+            int count;
+            
+            while ((count = reader.read(chunk)) > 0) {
+                
+                System.arraycopy(chunk, 0, buffer, 0, count);
+                inversions += MergeSort.sort(buffer, chunk, 0, count);
+                
+                Run run = createRun();
+                runs.add(run);
+                
+                try (RunWriter writer = new RunWriter(run)) {
+                    
+                    for (int i = 0; i < count; i++) {
+                        writer.write(chunk[i]);
+                    }
+                }
+            }
+        }
+        
+        return inversions;
+    }
+    
+    /**
+     * K-way merge of consecutive runs. Ties are broken by the run order, so 
+     * equal elements never count as inversions.
+     * 
+     * @param runs
+     * @param sink
+     * @return the number of cross inversions between the runs.
+     * @throws IOException 
+     */
+    private long merge(List<Run> runs, IntSink sink) throws IOException {
+        
+        int k = runs.size();
+        RunReader[] readers = new RunReader[k];
+        int[] heads = new int[k];
+        int[] heap = new int[k];
+        int heapSize = 0;
+        FenwickTree remaining = new FenwickTree(k);
+        long inversions = 0;
+        
+        try {
+            for (int r = 0; r < k; r++) {
+                
+                readers[r] = new RunReader(runs.get(r));
+                remaining.add(r, runs.get(r).count);
+                
+                if (readers[r].hasNext()) {
+                    heads[r] = readers[r].next();
+                    heap[heapSize] = r;
+                    siftUp(heap, heads, heapSize++);
+                }
+            }
+            
+            while (heapSize > 0) {
+                
+                int r = heap[0];
+                sink.write(heads[r]);
+                
+                inversions += remaining.prefixSum(r - 1);
+                remaining.add(r, -1);
+                
+                if (readers[r].hasNext()) {
+                    heads[r] = readers[r].next();
+                
+                } else {
+                    heap[0] = heap[--heapSize];
+                }
+                
+                siftDown(heap, heads, 0, heapSize);
+            }
+            
+        } finally {
+            
+            for (RunReader reader : readers) {
+                
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+        
+        return inversions;
+    }
+    
+    private static boolean less(int[] heads, int a, int b) {
+        return heads[a] < heads[b] || (heads[a] == heads[b] && a < b);
+    }
+    
+    private static void siftUp(int[] heap, int[] heads, int i) {
+        
+        int r = heap[i];
+        
+        while (i > 0) {
+            
+            int parent = (i - 1) >>> 1;
+            
+            if (!less(heads, r, heap[parent])) {
+                break;
+            }
+            
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        
+        heap[i] = r;
+    }
+    
+    private static void siftDown(int[] heap, int[] heads, int i, int size) {
+        
+        if (size == 0) {
+            return;
+        }
+        
+        int r = heap[i];
+        
+        while (true) {
+            
+            int child = 2 * i + 1;
+            
+            if (child >= size) {
+                break;
+            }
+            
+            if (child + 1 < size && less(heads, heap[child + 1], heap[child])) {
+                child++;
+            }
+            
+            if (!less(heads, heap[child], r)) {
+                break;
+            }
+            
+            heap[i] = heap[child];
+            i = child;
+        }
+        
+        heap[i] = r;
+    }
+    
+    private static final class Run {
+        
+        private final Path path;
+        private long count;
+
+        Run(Path path) {
+            this.path = path;
+        }
+    }
+    
+    private interface IntSink extends Closeable {
+        
+        void write(int value) throws IOException;
+    }
+    
+    /**
+     * Writes a run as binary integers through a file channel.
+     */
+    private static final class RunWriter implements IntSink {
+        
+        private final Run run;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        RunWriter(Run run) throws IOException {
+            this.run = run;
+            this.channel = FileChannel.open(run.path, 
+                    StandardOpenOption.WRITE, 
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(BLOCK_SIZE)
+                    .order(ByteOrder.nativeOrder());
+        }
+        
+        @Override
+        public void write(int value) throws IOException {
+            
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            
+            buffer.putInt(value);
+            run.count++;
+        }
+        
+        private void flush() throws IOException {
+            
+            buffer.flip();
+            
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+    
+    /**
+     * Reads the binary integers of a run through a file channel.
+     */
+    private static final class RunReader implements Closeable {
+        
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long remaining;
+
+        RunReader(Run run) throws IOException {
+            this.channel = FileChannel.open(run.path, StandardOpenOption.READ);
+            this.buffer = ByteBuffer.allocateDirect(BLOCK_SIZE)
+                    .order(ByteOrder.nativeOrder());
+            this.buffer.flip();
+            this.remaining = run.count;
+        }
+        
+        boolean hasNext() {
+            return remaining > 0;
+        }
+        
+        int next() throws IOException {
+            
+            if (buffer.remaining() < Integer.BYTES) {
+                
+                buffer.compact();
+                
+                while (buffer.position() < Integer.BYTES) {
+                    
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                
+                buffer.flip();
+            }
+            
+            remaining--;
+            return buffer.getInt();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Parses integers separated by white space directly from the bytes of a
+     * text file.
+     */
+    private static final class TextReader implements Closeable {
+        
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        TextReader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            this.buffer.flip();
+        }
+        
+        /**
+         * Reads integers until the array is full or the file ends.
+         * 
+         * @param array
+         * @return number of integers read
+         * @throws IOException 
+         */
+        int read(int[] array) throws IOException {
+            
+            int count = 0;
+            
+            while (count < array.length) {
+                
+                int b = nextByte();
+                
+                while (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    b = nextByte();
+                }
+                
+                if (b < 0) {
+                    break;
+                }
+                
+                boolean negative = b == '-';
+                
+                if (negative) {
+                    b = nextByte();
+                }
+                
+                long value = 0;
+                
+                do {
+                    
+                    if (b < '0' || b > '9') {
+                        throw new NumberFormatException(
+                                "Unexpected character: " + (char) b);
+                    }
+                    
+                    value = value * 10 + (b - '0');
+                    
+                    if (value > 1L + Integer.MAX_VALUE) {
+                        throw new NumberFormatException("Integer overflow");
+                    }
+                    
+                    b = nextByte();
+                    
+                } while (b >= 0 && b != ' ' && b != '\n' && b != '\r' 
+                        && b != '\t');
+                
+                value = negative ? -value : value;
+                
+                if (value > Integer.MAX_VALUE) {
+                    throw new NumberFormatException("Integer overflow");
+                }
+                
+                array[count++] = (int) value;
+            }
+            
+            return count;
+        }
+        
+        private int nextByte() throws IOException {
+            
+            if (!buffer.hasRemaining()) {
+                
+                buffer.clear();
+                int read;
+                
+                while ((read = channel.read(buffer)) == 0) { }
+                
+                buffer.flip();
+                
+                if (read < 0) {
+                    return -1;
+                }
+            }
+            
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Writes integers as text, one per line, through a file channel.
+     */
+    private static final class TextWriter implements IntSink {
+        
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final byte[] digits = new byte[11];
+
+        TextWriter(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, 
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        }
+        
+        @Override
+        public void write(int value) throws IOException {
+            
+            if (buffer.remaining() < digits.length + 1) {
+                flush();
+            }
+            
+            if (value < 0) {
+                buffer.put((byte) '-');
+            }
+            
+            // negative values avoid overflow on Integer.MIN_VALUE
+            int v = value < 0 ? value : -value;
+            int i = digits.length;
+            
+            do {
+                digits[--i] = (byte) ('0' - v % 10);
+                v /= 10;
+            } while (v != 0);
+            
+            buffer.put(digits, i, digits.length - i);
+            buffer.put((byte) '\n');
+        }
+        
+        private void flush() throws IOException {
+            
+            buffer.flip();
+            
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
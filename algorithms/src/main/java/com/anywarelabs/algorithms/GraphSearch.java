@@ -23,7 +23,7 @@
  */
 package com.anywarelabs.algorithms;
 
-import com.anywarelabs.algorithms.datastructures.Graph;
+import com.anywarelabs.algorithms.datastructures.TraversableGraph;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -38,9 +38,9 @@ public abstract class GraphSearch {
     protected List<Integer> order;
     //protected Map<Integer, Boolean> visited;
     boolean[] visited;
-    private final Graph graph;
+    private final TraversableGraph graph;
     
-    public GraphSearch(Graph g) {
+    public GraphSearch(TraversableGraph g) {
         graph = g;
         //visited = new HashMap<>();
         visited = new boolean[g.size()];
@@ -81,12 +81,12 @@ public abstract class GraphSearch {
         
         List<Integer> notVisited = new ArrayList<>();
         
-        for (Object connected: graph.getConnectedVertices(vertex)) {
-
-            if (!visited((Integer) connected)) {
-                notVisited.add((Integer) connected);
+        graph.forEachNeighbor(vertex, (connected) -> {
+            
+            if (!visited[connected]) {
+                notVisited.add(connected);
             }
-        }
+        });
         
         return notVisited;
     }
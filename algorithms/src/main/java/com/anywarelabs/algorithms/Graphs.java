@@ -23,21 +23,22 @@
  */
 package com.anywarelabs.algorithms;
 
+import com.anywarelabs.algorithms.datastructures.CompactGraph;
+import com.anywarelabs.algorithms.datastructures.CsrGraph;
 import com.anywarelabs.algorithms.datastructures.DirectedGraph;
 import com.anywarelabs.algorithms.datastructures.Graph;
 import com.anywarelabs.algorithms.datastructures.Graph.Edge;
 import com.anywarelabs.algorithms.datastructures.KCluster;
+import com.anywarelabs.algorithms.datastructures.TraversableGraph;
 import com.anywarelabs.algorithms.datastructures.UndirectedGraph;
 import com.anywarelabs.algorithms.datastructures.UnionFind;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Random;
-import java.util.Set;
 
 /**
  *
@@ -45,6 +46,8 @@ import java.util.Set;
  */
 public class Graphs {
     
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    
     /**
      * Karger's minimum cut algorithm implementation. Repeats the algorithm 
      * "reps" times, where "reps" is a function of the input size.
@@ -81,54 +84,63 @@ public class Graphs {
             Random rand = new Random();
             
             // copy g to auxGraph
-            g.getEdges().stream().forEach((e) -> {
+            g.getEdgeView().stream().forEach((e) -> {
                 auxGraph.addEdge((Edge) e);
             });
             
             while (auxGraph.size() > 2) {
 
-                int numEdges = auxGraph.getEdges().size();
+                int numEdges = auxGraph.getEdgeView().size();
                 
                 if (numEdges <= 1) {
                     break;
                 }
                 
                 int chosenEdgeIndex = rand.nextInt(numEdges - 1) + 1;
-                Edge chosenEdge = (Edge) auxGraph.getEdges().get(chosenEdgeIndex);
+                Edge chosenEdge = (Edge) auxGraph.getEdgeView().get(chosenEdgeIndex);
                 auxGraph.contractEdge(chosenEdge);
             }
             
             if (minCut == null || 
-                    minCut.getEdges().size() > auxGraph.getEdges().size()) {
+                    minCut.getEdgeView().size() > auxGraph.getEdgeView().size()) {
                 minCut = auxGraph;
             }
         
             if (i % 100 == 0) {
                 System.out.printf("Repetition %d: min cut = %d\n", i, 
-                        minCut.getEdges().size());
+                        minCut.getEdgeView().size());
             }
         }
         
         return minCut;
     }
     
+    /**
+     * Kruskal's algorithm. The edges are sorted by their primitive costs, 
+     * without compareTo calls.
+     * 
+     * @param g undirected graph
+     * @return 
+     */
     public static Graph getKruskalMST(UndirectedGraph g) {
         
-        UnionFind unionFind = new UnionFind(g.getVertices().size());
+        int vertexCount = g.getVertexView().size();
+        UnionFind unionFind = new UnionFind(vertexCount);
         
-        List<UndirectedGraph.UndirectedEdge> edges = g.getEdges();
-        Collections.sort(edges);
+        UndirectedGraph.UndirectedEdge[] edges = g.getEdgeView().toArray(
+                new UndirectedGraph.UndirectedEdge[0]);
+        new Sorting().sortBy(edges, UndirectedGraph.UndirectedEdge::getCost);
         
-        Graph mst = new UndirectedGraph(g.getVertices().size());
+        Graph mst = new UndirectedGraph(vertexCount);
         
         for (UndirectedGraph.UndirectedEdge edge : edges) {
             
-            Integer either = edge.getEither();
-            Integer other = edge.getOther(either);
+            int either = edge.getEither();
+            int other = edge.getOther(either);
             
             if (!unionFind.connected(either, other)) {
                 
-                if (unionFind.getUnionCount() >= g.getVertices().size() - 1) {
+                if (unionFind.getUnionCount() >= vertexCount - 1) {
                     break;
                 }
                 
@@ -140,29 +152,97 @@ public class Graphs {
         return mst;
     }
     
+    /**
+     * Kruskal's algorithm on a compact graph. Edge costs are sorted together
+     * with the edge indices in primitive arrays, by a stable merge sort, so 
+     * nothing is boxed and costs may use the whole long range.
+     * 
+     * @param g undirected graph
+     * @return minimum spanning forest
+     */
+    public static CsrGraph getKruskalMST(CompactGraph g) {
+        
+        checkUndirected(g);
+        
+        if (g.getEdgeCount() > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Too many edges: " 
+                    + g.getEdgeCount());
+        }
+        
+        int vertexCount = g.size();
+        int edgeCount = (int) g.getEdgeCount();
+        long[] costs = new long[edgeCount];
+        int[] order = new int[edgeCount];
+        int[] eithers = new int[edgeCount];
+        int[] others = new int[edgeCount];
+        int count = 0;
+        
+        // one of the two arcs of each edge; self loops are never in the MST
+        for (int v = 0; v < vertexCount; v++) {
+            
+            for (long arc = g.getArcStart(v); arc < g.getArcEnd(v); arc++) {
+                
+                int target = g.getTarget(arc);
+                
+                if (target > v) {
+                    eithers[count] = v;
+                    others[count] = target;
+                    costs[count] = g.getCost(arc);
+                    order[count] = count;
+                    count++;
+                }
+            }
+        }
+        
+        // edges of equal cost keep their order, as when sorting edge objects
+        MergeSort.sort(Arrays.copyOf(costs, count), Arrays.copyOf(order, count),
+                costs, order, 0, count);
+        
+        UnionFind unionFind = new UnionFind(vertexCount);
+        SpanningForest mst = new SpanningForest(vertexCount);
+        
+        for (int i = 0; i < count; i++) {
+            
+            if (unionFind.getUnionCount() >= vertexCount - 1) {
+                break;
+            }
+            
+            int edge = order[i];
+            int either = eithers[edge];
+            int other = others[edge];
+            
+            if (!unionFind.connected(either, other)) {
+                unionFind.union(either, other);
+                mst.add(either, other, costs[i]);
+            }
+        }
+        
+        return mst.toGraph();
+    }
+    
     public static Graph getPrimMST(UndirectedGraph g) {
      
-        Graph mst = new UndirectedGraph(g.getVertices().size());
+        Graph mst = new UndirectedGraph(g.getVertexView().size());
         mst.addVertex(0, mst.new Vertex());
         
         Queue<UndirectedGraph.UndirectedEdge> queue = 
-                new PriorityQueue<>(g.getVertices().get(0).getEdges());
+                new PriorityQueue<>(g.getVertex(0).getEdges());
         
         while (queue.size() > 0) {
             
             UndirectedGraph.UndirectedEdge edge = queue.remove();
-            Integer either = edge.getEither();
-            Integer other = edge.getOther(either);
+            int either = edge.getEither();
+            int other = edge.getOther(either);
             
             if (mst.hasVertex(either) && mst.hasVertex(other)) {
                 continue;
             }
             
-            Integer vertexToAdd = mst.hasVertex(either) ? other : either;
+            int vertexToAdd = mst.hasVertex(either) ? other : either;
             
             mst.addEdge(edge);
             
-            for (UndirectedGraph.UndirectedEdge _edge : g.getVertices().get(vertexToAdd).getEdges()) {
+            for (UndirectedGraph.UndirectedEdge _edge : g.getVertex(vertexToAdd).getEdges()) {
                 
                 if (!_edge.equals(edge)) {
                     queue.add(_edge);
@@ -173,17 +253,132 @@ public class Graphs {
         return mst;
     }
     
+    /**
+     * Prim's algorithm on a compact graph. The cheapest known arc into each 
+     * vertex is kept in primitive arrays, and the vertices are kept in an 
+     * indexed heap keyed by its cost, whose key is decreased when a cheaper 
+     * arc is found. Every component is spanned, so the result is a minimum 
+     * spanning forest.
+     * 
+     * @param g undirected graph
+     * @return minimum spanning forest
+     */
+    public static CsrGraph getPrimMST(CompactGraph g) {
+        
+        checkUndirected(g);
+        
+        int vertexCount = g.size();
+        boolean[] inTree = new boolean[vertexCount];
+        long[] bestCosts = new long[vertexCount];
+        int[] parents = new int[vertexCount];
+        Arrays.fill(parents, -1);
+        
+        IndexedHeap heap = new IndexedHeap(vertexCount, 4);
+        SpanningForest mst = new SpanningForest(vertexCount);
+        
+        for (int root = 0; root < vertexCount; root++) {
+            
+            if (inTree[root]) {
+                continue;
+            }
+            
+            inTree[root] = true;
+            addCandidateArcs(g, root, inTree, bestCosts, parents, heap);
+            
+            while (!heap.isEmpty()) {
+                
+                int vertexToAdd = heap.remove();
+                inTree[vertexToAdd] = true;
+                mst.add(parents[vertexToAdd], vertexToAdd, 
+                        bestCosts[vertexToAdd]);
+                addCandidateArcs(g, vertexToAdd, inTree, bestCosts, parents, 
+                        heap);
+            }
+        }
+        
+        return mst.toGraph();
+    }
+    
+    private static void addCandidateArcs(CompactGraph g, int vertex, 
+            boolean[] inTree, long[] bestCosts, int[] parents, 
+            IndexedHeap heap) {
+        
+        for (long arc = g.getArcStart(vertex); arc < g.getArcEnd(vertex); 
+                arc++) {
+            
+            int target = g.getTarget(arc);
+            long cost = g.getCost(arc);
+            
+            if (inTree[target]) {
+                continue;
+            }
+            
+            if (parents[target] < 0) {
+                bestCosts[target] = cost;
+                parents[target] = vertex;
+                heap.add(target, cost);
+                
+            } else if (cost < bestCosts[target]) {
+                bestCosts[target] = cost;
+                parents[target] = vertex;
+                heap.decreaseKey(target, cost);
+            }
+        }
+    }
+    
+    private static void checkUndirected(CompactGraph g) {
+        
+        if (g.isDirected()) {
+            throw new IllegalArgumentException("Graph must be undirected");
+        }
+    }
+    
+    /**
+     * Edges of a spanning forest under construction, in parallel arrays.
+     */
+    private static class SpanningForest {
+        
+        private final int vertexCount;
+        private final int[] sources;
+        private final int[] targets;
+        private final long[] costs;
+        private int size;
+        
+        SpanningForest(int vertexCount) {
+            
+            this.vertexCount = vertexCount;
+            int capacity = Math.max(vertexCount - 1, 0);
+            sources = new int[capacity];
+            targets = new int[capacity];
+            costs = new long[capacity];
+        }
+        
+        void add(int source, int target, long cost) {
+            
+            sources[size] = source;
+            targets[size] = target;
+            costs[size++] = cost;
+        }
+        
+        CsrGraph toGraph() {
+            return new CsrGraph(vertexCount, Arrays.copyOf(sources, size),
+                    Arrays.copyOf(targets, size), Arrays.copyOf(costs, size),
+                    false);
+        }
+    }
+    
     public static KCluster getKCluster(UndirectedGraph g, int clusterCount) {
         
-        List<UndirectedGraph.UndirectedEdge> edges = g.getEdges();
-        Collections.sort(edges);
+        UndirectedGraph.UndirectedEdge[] edges = g.getEdgeView().toArray(
+                new UndirectedGraph.UndirectedEdge[0]);
+        new Sorting().sortBy(edges, UndirectedGraph.UndirectedEdge::getCost);
         
-        KCluster cluster = new KCluster(g.getVertices().size(), clusterCount);
+        KCluster cluster = new KCluster(g.getVertexView().size(), clusterCount);
         
         for (UndirectedGraph.UndirectedEdge edge : edges) {
             
-            Integer either = edge.getEither();
-            Integer other = edge.getOther(either);
+            int either = edge.getEither();
+            int other = edge.getOther(either);
             
             if (!cluster.connected(either, other)) {
                 
@@ -199,87 +394,59 @@ public class Graphs {
     }
     
     /**
-     * Dijkstra's algorithm for finding shortest paths between nodes in a graph.
-     * This algorithm is valid for graphs that don't have negative cost edges.
+     * Dijkstra's algorithm for finding shortest paths between nodes in a graph,
+     * such as a directed graph, a compact graph or a snapshot of a concurrent
+     * graph. This algorithm is valid for graphs that don't have negative cost 
+     * edges. See {@link ShortestPaths} for the engine behind it, which keeps 
+     * long distances and can be reused for many sources.
      * 
      * @param g
      * @param source
      * @return array with shortest paths from source vertex to every other 
-     * reachable vertex.
+     * reachable vertex, and null for unreachable vertices.
+     * @throws ArithmeticException if a distance overflows an int.
      */
-    public static Integer[] dijkstra(DirectedGraph g, int source) {
+    public static Integer[] dijkstra(TraversableGraph g, int source) {
         
-        Integer[] distances = new Integer[g.size()];
-        Set<Integer> notVisited = new HashSet<>();
+        long[] distances = getShortestDistances(g, source);
+        Integer[] result = new Integer[distances.length];
         
-        for (int i=0; i<distances.length; i++) {
-            distances[i] = null;
-            notVisited.add(i);
-        }
-        
-        distances[source] = 0;
-        
-        while (!notVisited.isEmpty()) {
-            
-            int nextVertex = extractMinimumDistanceVertex(notVisited, distances);
+        for (int i = 0; i < distances.length; i++) {
             
-            for (DirectedGraph.DirectedEdge e: g.getVertex(nextVertex).getEdges()) {
-                
-                int dist = e.getCost() + distances[nextVertex];
-                if (distances[e.getTarget()] == null || distances[e.getTarget()].compareTo(dist) > 0) {
-                    distances[e.getTarget()] = dist;
-                }
+            if (distances[i] != ShortestPaths.UNREACHABLE) {
+                result[i] = Math.toIntExact(distances[i]);
             }
         }
         
-        return distances;
+        return result;
     }
     
     /**
-     * Naive implementation to find the vertex with minimum greedy choice 
-     * criteria: distance[u] + edge_cost(u,v). 
+     * Dijkstra's algorithm with primitive results, in O(E log V) time.
      * 
-     * Could be improved using a min heap.
-     * 
-     * @param notVisited
-     * @param distances
-     * @return 
+     * @param g
+     * @param source
+     * @return array with shortest distances from source vertex to every other
+     * vertex, and {@link ShortestPaths#UNREACHABLE} for unreachable vertices.
      */
-    private static int extractMinimumDistanceVertex(Collection<Integer> notVisited, 
-            Integer[] distances) {
-        
-        Integer min = null;
-        int minVertex = 0;
-        
-        for (Integer v: notVisited) {
-
-            if (distances[v] != null) {
-
-                if (min == null || distances[v].compareTo(min) < 0) {
-                    min = distances[v];
-                    minVertex = v;
-                }
-            }
-        }
-        
-        notVisited.remove(minVertex);
-        
-        return minVertex;
+    public static long[] getShortestDistances(TraversableGraph g, int source) {
+        return new ShortestPaths(g).search(source).getDistances();
     }
     
     /**
      * Kosaraju-Sharir algorithm to find the strongly connected components of a 
-     * directed graph.
+     * directed graph. The first pass runs on the transpose view of the graph,
+     * so the graph is not modified and can be queried by other threads 
+     * meanwhile.
      * 
      * @param g
      * @return 
      */
     public static List<List<Integer>> getStronglyConnectedComponents(DirectedGraph g) {
         
-        Graphs.reverse(g);
-        List<Integer> reversePostOrder = getReversePostOrder(g);
+        List<Integer> reversePostOrder = getReversePostOrder(
+                g.getTransposeView());
         
-        Graphs.reverse(g);
         List<List<Integer>> sccs = new ArrayList<>();
         boolean[] visited = new boolean[g.size()];
         
@@ -304,7 +471,97 @@ public class Graphs {
         return sccs;
     }
     
-    private static List<Integer> getReversePostOrder(DirectedGraph g) {
+    /**
+     * Tarjan's algorithm on any traversable graph, with an iterative 
+     * depth-first search on primitive stacks. Unlike Kosaraju-Sharir it 
+     * takes a single pass and no transpose, so graphs mapped from files or 
+     * stored off the heap are never copied, and graphs shared with other 
+     * threads are never modified.
+     * 
+     * @param g directed graph
+     * @return 
+     */
+    public static List<List<Integer>> getStronglyConnectedComponents(
+            TraversableGraph g) {
+        
+        int vertexCount = g.size();
+        List<List<Integer>> sccs = new ArrayList<>();
+        
+        // discovery index of each vertex, starting at 1, and the lowest 
+        // index reachable from it through vertices still on the stack
+        int[] index = new int[vertexCount];
+        int[] low = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        int[] stack = new int[vertexCount];
+        int stackSize = 0;
+        
+        int[] path = new int[vertexCount];
+        // next arc to follow from each vertex on the path
+        int[] cursor = new int[vertexCount];
+        int count = 0;
+        
+        for (int start = 0; start < vertexCount; start++) {
+            
+            if (index[start] != 0) {
+                continue;
+            }
+            
+            index[start] = low[start] = ++count;
+            cursor[start] = 0;
+            stack[stackSize++] = start;
+            onStack[start] = true;
+            path[0] = start;
+            int top = 1;
+            
+            while (top > 0) {
+                
+                int vertex = path[top - 1];
+                
+                if (cursor[vertex] < g.getDegree(vertex)) {
+                    
+                    int target = g.getNeighbor(vertex, cursor[vertex]++);
+                    
+                    if (index[target] == 0) {
+                        index[target] = low[target] = ++count;
+                        cursor[target] = 0;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        path[top++] = target;
+                        
+                    } else if (onStack[target]) {
+                        low[vertex] = Math.min(low[vertex], index[target]);
+                    }
+                    
+                    continue;
+                }
+                
+                top--;
+                
+                if (top > 0) {
+                    int parent = path[top - 1];
+                    low[parent] = Math.min(low[parent], low[vertex]);
+                }
+                
+                if (low[vertex] == index[vertex]) {
+                    
+                    List<Integer> component = new ArrayList<>();
+                    int member;
+                    
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component.add(member);
+                    } while (member != vertex);
+                    
+                    sccs.add(component);
+                }
+            }
+        }
+        
+        return sccs;
+    }
+    
+    private static List<Integer> getReversePostOrder(TraversableGraph g) {
         
         List<Integer> postOrder = new ArrayList<>();
         boolean[] visited = new boolean[g.size()];
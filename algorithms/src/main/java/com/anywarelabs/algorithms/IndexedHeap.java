@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary min-heap of vertices keyed by primitive long priorities. 
+ * The heap keeps the slot of each vertex, so the key of a vertex already 
+ * in the heap can be decreased in O(log V) time instead of adding a 
+ * duplicate entry. A larger arity makes the tree shallower, which favours 
+ * the frequent decrease-key operations of shortest path searches.
+ *
+ * @author Marcio Fonseca
+ */
+final class IndexedHeap {
+    
+    private final int arity;
+    private final int[] heap;
+    private final long[] keys;
+    private final int[] slots;
+    private int size;
+    
+    IndexedHeap(int capacity, int arity) {
+        
+        if (arity < 2) {
+            throw new IllegalArgumentException("Invalid arity: " + arity);
+        }
+        
+        this.arity = arity;
+        heap = new int[capacity];
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, -1);
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    boolean contains(int vertex) {
+        return slots[vertex] >= 0;
+    }
+    
+    /**
+     * Adds a vertex that is not in the heap.
+     * 
+     * @param vertex
+     * @param key 
+     */
+    void add(int vertex, long key) {
+        
+        if (contains(vertex)) {
+            throw new IllegalStateException("Vertex already in heap: " + vertex);
+        }
+        
+        siftUp(size++, vertex, key);
+    }
+    
+    /**
+     * Lowers the key of a vertex in the heap. Greater keys are ignored.
+     * 
+     * @param vertex
+     * @param key 
+     */
+    void decreaseKey(int vertex, long key) {
+        
+        int slot = slots[vertex];
+        
+        if (slot < 0) {
+            throw new IllegalStateException("Vertex not in heap: " + vertex);
+        }
+        
+        if (key < keys[slot]) {
+            siftUp(slot, vertex, key);
+        }
+    }
+    
+    /**
+     * Removes the vertex with the minimum key.
+     * 
+     * @return 
+     */
+    int remove() {
+        
+        int min = heap[0];
+        slots[min] = -1;
+        size--;
+        
+        if (size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+        
+        return min;
+    }
+    
+    /**
+     * Removes every vertex, in time proportional to the heap size.
+     */
+    void clear() {
+        
+        for (int i = 0; i < size; i++) {
+            slots[heap[i]] = -1;
+        }
+        
+        size = 0;
+    }
+    
+    private void siftUp(int slot, int vertex, long key) {
+        
+        while (slot > 0) {
+            
+            int parent = (slot - 1) / arity;
+            
+            if (keys[parent] <= key) {
+                break;
+            }
+            
+            move(parent, slot);
+            slot = parent;
+        }
+        
+        set(slot, vertex, key);
+    }
+    
+    private void siftDown(int slot, int vertex, long key) {
+        
+        while (true) {
+            
+            int first = slot * arity + 1;
+            
+            if (first >= size) {
+                break;
+            }
+            
+            int last = Math.min(first + arity, size);
+            int child = first;
+            
+            for (int i = first + 1; i < last; i++) {
+                
+                if (keys[i] < keys[child]) {
+                    child = i;
+                }
+            }
+            
+            if (key <= keys[child]) {
+                break;
+            }
+            
+            move(child, slot);
+            slot = child;
+        }
+        
+        set(slot, vertex, key);
+    }
+    
+    private void move(int from, int to) {
+        set(to, heap[from], keys[from]);
+    }
+    
+    private void set(int slot, int vertex, long key) {
+        
+        heap[slot] = vertex;
+        keys[slot] = key;
+        slots[vertex] = slot;
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * In-place sort of binary files of little-endian 32-bit integers. The file 
+ * is memory-mapped and accessed through {@link IntBuffer} views, so its 
+ * contents are never copied to the Java heap and files can hold more than
+ * 2^31 integers.
+ * 
+ * <p>The sort is a bottom-up merge sort that ping-pongs between the file and
+ * a memory-mapped temporary file of the same size. Segments of 
+ * {@link #SEGMENT_SIZE} integers are sorted in parallel, each one by a 
+ * single task that keeps its segment hot in the cache. The sorted segments 
+ * are then merged in passes, where the merges of a pass run in parallel and
+ * large merges are further split by binary search.
+ *
+ * @author Marcio Fonseca
+ */
+public class MappedFileSort {
+    
+    /**
+     * Number of integers in the blocks sorted by insertion sort.
+     */
+    static final int BLOCK_SIZE = 32;
+    
+    /**
+     * Number of integers in the segments sorted by a single task.
+     */
+    public static final int SEGMENT_SIZE = 1 << 20;
+    
+    /**
+     * Merges with less integers than this granularity are not split in 
+     * parallel tasks.
+     */
+    static final int MERGE_GRANULARITY = 1 << 16;
+    
+    private final Path tempDirectory;
+
+    public MappedFileSort() {
+        this(Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+    
+    /**
+     * @param tempDirectory directory of the temporary merge file
+     */
+    public MappedFileSort(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+    
+    /**
+     * Sorts the integers of the file into ascending numerical order.
+     * 
+     * @param file binary file of little-endian 32-bit integers
+     * @throws IOException 
+     */
+    public void sort(Path file) throws IOException {
+        
+        long size = Files.size(file);
+        
+        if (size % Integer.BYTES != 0) {
+            throw new IllegalArgumentException(
+                    "File size is not a multiple of 4 bytes: " + size);
+        }
+        
+        long length = size / Integer.BYTES;
+        
+        if (length < 2) {
+            return;
+        }
+        
+        Path temp = Files.createTempFile(tempDirectory, "sort", ".bin");
+        
+        try (FileChannel fileChannel = FileChannel.open(file, 
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileChannel tempChannel = FileChannel.open(temp,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            
+            MappedInts data = new MappedInts(fileChannel, length);
+            MappedInts buffer = new MappedInts(tempChannel, length);
+            
+            MappedInts sorted = sort(data, buffer);
+            
+            if (sorted != data) {
+                sorted.copyTo(data);
+            }
+            
+            data.force();
+            
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Sorts the integers of data, using buffer as merge buffer.
+     * 
+     * @param data
+     * @param buffer
+     * @return the mapping that holds the sorted integers
+     */
+    private MappedInts sort(MappedInts data, MappedInts buffer) {
+        
+        long length = data.length;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        
+        for (long low = 0; low < length; low += SEGMENT_SIZE) {
+            tasks.add(new SegmentTask(data, buffer, low, 
+                    Math.min(low + SEGMENT_SIZE, length)));
+        }
+        
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        
+        // segment tasks end in the buffer when their number of passes is odd
+        MappedInts src = SegmentTask.PASSES % 2 == 0 ? data : buffer;
+        MappedInts dst = src == data ? buffer : data;
+        
+        for (long width = SEGMENT_SIZE; width < length; width <<= 1) {
+            
+            runPass(src, dst, length, width);
+            
+            MappedInts aux = src;
+            src = dst;
+            dst = aux;
+        }
+        
+        return src;
+    }
+    
+    /**
+     * Merges every pair of adjacent sorted runs of the given width from src
+     * into dst, in parallel.
+     */
+    private static void runPass(MappedInts src, MappedInts dst, long length,
+            long width) {
+        
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        
+        for (long low = 0; low < length; low += 2 * width) {
+            
+            long mid = Math.min(low + width, length);
+            long high = Math.min(low + 2 * width, length);
+            tasks.add(new MergeTask(src, low, mid, mid, high, dst, low));
+        }
+        
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+    
+    /**
+     * Sorts a segment with insertion sort on small blocks followed by 
+     * bottom-up merge passes. The number of passes depends only on the
+     * segment size, so every segment ends in the same mapping.
+     */
+    private static final class SegmentTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        static final int PASSES = Integer.numberOfTrailingZeros(
+                SEGMENT_SIZE / BLOCK_SIZE);
+        
+        private final MappedInts data;
+        private final MappedInts buffer;
+        private final long low;
+        private final long high;
+
+        SegmentTask(MappedInts data, MappedInts buffer, long low, long high) {
+            this.data = data;
+            this.buffer = buffer;
+            this.low = low;
+            this.high = high;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            for (long start = low; start < high; start += BLOCK_SIZE) {
+                insertionSort(data, start, Math.min(start + BLOCK_SIZE, high));
+            }
+            
+            MappedInts src = data;
+            MappedInts dst = buffer;
+            
+            for (long width = BLOCK_SIZE; width < SEGMENT_SIZE; width <<= 1) {
+                
+                for (long start = low; start < high; start += 2 * width) {
+                    
+                    long mid = Math.min(start + width, high);
+                    long end = Math.min(start + 2 * width, high);
+                    merge(src, start, mid, mid, end, dst, start);
+                }
+                
+                MappedInts aux = src;
+                src = dst;
+                dst = aux;
+            }
+        }
+    }
+    
+    /**
+     * Merges two sorted runs, splitting large merges in two independent 
+     * merges around the middle element of the longer run.
+     */
+    private static final class MergeTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final MappedInts src;
+        private final long low1;
+        private final long high1;
+        private final long low2;
+        private final long high2;
+        private final MappedInts dst;
+        private final long k;
+
+        MergeTask(MappedInts src, long low1, long high1, long low2, 
+                long high2, MappedInts dst, long k) {
+            this.src = src;
+            this.low1 = low1;
+            this.high1 = high1;
+            this.low2 = low2;
+            this.high2 = high2;
+            this.dst = dst;
+            this.k = k;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            long length1 = high1 - low1;
+            long length2 = high2 - low2;
+            
+            if (length1 + length2 < MERGE_GRANULARITY || length1 == 0 
+                    || length2 == 0) {
+                merge(src, low1, high1, low2, high2, dst, k);
+                return;
+            }
+            
+            long split1;
+            long split2;
+            
+            if (length1 >= length2) {
+                split1 = (low1 + high1) >>> 1;
+                split2 = lowerBound(src, low2, high2, src.get(split1));
+                
+            } else {
+                split2 = (low2 + high2) >>> 1;
+                split1 = upperBound(src, low1, high1, src.get(split2));
+            }
+            
+            invokeAll(new MergeTask(src, low1, split1, low2, split2, dst, k),
+                    new MergeTask(src, split1, high1, split2, high2, dst,
+                            k + (split1 - low1) + (split2 - low2)));
+        }
+    }
+    
+    private static void insertionSort(MappedInts a, long low, long high) {
+        
+        for (long i = low + 1; i < high; i++) {
+            
+            int value = a.get(i);
+            long j = i - 1;
+            
+            while (j >= low && a.get(j) > value) {
+                a.put(j + 1, a.get(j));
+                j--;
+            }
+            
+            a.put(j + 1, value);
+        }
+    }
+    
+    private static void merge(MappedInts src, long low1, long high1, 
+            long low2, long high2, MappedInts dst, long k) {
+        
+        long i = low1;
+        long j = low2;
+        
+        while (i < high1 && j < high2) {
+            
+            int a = src.get(i);
+            int b = src.get(j);
+            
+            if (a <= b) {
+                dst.put(k++, a);
+                i++;
+                
+            } else {
+                dst.put(k++, b);
+                j++;
+            }
+        }
+        
+        while (i < high1) {
+            dst.put(k++, src.get(i++));
+        }
+        
+        while (j < high2) {
+            dst.put(k++, src.get(j++));
+        }
+    }
+    
+    private static long lowerBound(MappedInts a, long low, long high,
+            int key) {
+        
+        while (low < high) {
+            
+            long mid = (low + high) >>> 1;
+            
+            if (a.get(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    private static long upperBound(MappedInts a, long low, long high,
+            int key) {
+        
+        while (low < high) {
+            
+            long mid = (low + high) >>> 1;
+            
+            if (a.get(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Little-endian integers of a file, mapped in chunks of 2^28 integers
+     * since a single mapping is limited to 2^31 bytes. Absolute gets and puts
+     * do not change the buffer positions, so disjoint ranges can be accessed
+     * by several threads.
+     */
+    private static final class MappedInts {
+        
+        private static final int SHIFT = 28;
+        private static final long MASK = (1L << SHIFT) - 1;
+        
+        private final MappedByteBuffer[] mappings;
+        private final IntBuffer[] buffers;
+        private final long length;
+
+        MappedInts(FileChannel channel, long length) throws IOException {
+            
+            int count = (int) ((length + MASK) >>> SHIFT);
+            
+            this.mappings = new MappedByteBuffer[count];
+            this.buffers = new IntBuffer[count];
+            this.length = length;
+            
+            for (int i = 0; i < count; i++) {
+                
+                long start = (long) i << SHIFT;
+                long size = Math.min(1L << SHIFT, length - start);
+                
+                mappings[i] = channel.map(MapMode.READ_WRITE, 
+                        start * Integer.BYTES, size * Integer.BYTES);
+                buffers[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN)
+                        .asIntBuffer();
+            }
+        }
+        
+        int get(long index) {
+            return buffers[(int) (index >>> SHIFT)].get((int) (index & MASK));
+        }
+        
+        void put(long index, int value) {
+            buffers[(int) (index >>> SHIFT)].put((int) (index & MASK), value);
+        }
+        
+        /**
+         * Copies every integer to a mapping of the same length, chunk by 
+         * chunk with bulk puts.
+         */
+        void copyTo(MappedInts dst) {
+            
+            for (int i = 0; i < buffers.length; i++) {
+                
+                IntBuffer target = dst.buffers[i].duplicate();
+                target.rewind();
+                IntBuffer source = buffers[i].duplicate();
+                source.rewind();
+                target.put(source);
+            }
+        }
+        
+        void force() {
+            
+            for (MappedByteBuffer mapping : mappings) {
+                mapping.force();
+            }
+        }
+    }
+}
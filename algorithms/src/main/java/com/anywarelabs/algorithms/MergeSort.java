@@ -0,0 +1,439 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merge sort engine for primitive arrays used by {@link Sorting}. It counts
+ * the number of inversions found in the original array.
+ * 
+ * <p>A single buffer with a copy of the input is allocated per sort. Each 
+ * level of the recursion merges from one array into the other, swapping 
+ * their roles on the way down, so no merge step allocates or copies back.
+ *
+ * @author Marcio Fonseca
+ */
+final class MergeSort {
+    
+    /**
+     * Ranges with less elements than this threshold are sorted by insertion
+     * sort.
+     */
+    static final int INSERTION_SORT_THRESHOLD = 16;
+    
+    private MergeSort() {
+    }
+    
+    /**
+     * Sorts dst[low, high) using src as buffer. Both arrays must hold the
+     * same elements in the range when the method is called.
+     * 
+     * @param src
+     * @param dst
+     * @param low
+     * @param high exclusive
+     * @return the number of inversions found in the range.
+     */
+    static long sort(int[] src, int[] dst, int low, int high) {
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            return insertionSort(dst, low, high);
+        }
+        
+        int mid = (low + high) >>> 1;
+        long inversions = sort(dst, src, low, mid);
+        inversions += sort(dst, src, mid, high);
+        
+        return inversions + merge(src, dst, low, mid, high);
+    }
+    
+    /**
+     * Merges the sorted runs src[low, mid) and src[mid, high) into dst.
+     * 
+     * @param src
+     * @param dst
+     * @param low
+     * @param mid
+     * @param high
+     * @return the number of cross inversions between the runs.
+     */
+    static long merge(int[] src, int[] dst, int low, int mid, int high) {
+        
+        if (src[mid - 1] <= src[mid]) {
+            System.arraycopy(src, low, dst, low, high - low);
+            return 0;
+        }
+        
+        return merge(src, low, mid, mid, high, dst, low);
+    }
+    
+    /**
+     * Merges the sorted runs src[low1, high1) and src[low2, high2) into dst,
+     * starting at position k. Every element of the first run is assumed to 
+     * come before the elements of the second run in the original order.
+     * 
+     * @param src
+     * @param low1
+     * @param high1
+     * @param low2
+     * @param high2
+     * @param dst
+     * @param k
+     * @return the number of cross inversions between the runs.
+     */
+    static long merge(int[] src, int low1, int high1, int low2, int high2,
+            int[] dst, int k) {
+        
+        int i = low1;
+        int j = low2;
+        long inversions = 0;
+        
+        while (i < high1 && j < high2) {
+            
+            if (src[i] <= src[j]) {
+                dst[k++] = src[i++];
+                
+            } else {
+                dst[k++] = src[j++];
+                inversions += high1 - i;
+            }
+        }
+        
+        System.arraycopy(src, i, dst, k, high1 - i);
+        System.arraycopy(src, j, dst, k + high1 - i, high2 - j);
+        
+        return inversions;
+    }
+    
+    private static long insertionSort(int[] array, int low, int high) {
+        
+        long inversions = 0;
+        
+        for (int i = low + 1; i < high; i++) {
+            
+            int value = array[i];
+            int j = i - 1;
+            
+            while (j >= low && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            
+            inversions += i - 1 - j;
+            array[j + 1] = value;
+        }
+        
+        return inversions;
+    }
+    
+    static long sort(long[] src, long[] dst, int low, int high) {
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            return insertionSort(dst, low, high);
+        }
+        
+        int mid = (low + high) >>> 1;
+        long inversions = sort(dst, src, low, mid);
+        inversions += sort(dst, src, mid, high);
+        
+        return inversions + merge(src, dst, low, mid, high);
+    }
+    
+    static long merge(long[] src, long[] dst, int low, int mid, int high) {
+        
+        if (src[mid - 1] <= src[mid]) {
+            System.arraycopy(src, low, dst, low, high - low);
+            return 0;
+        }
+        
+        int i = low;
+        int j = mid;
+        long inversions = 0;
+        
+        for (int k = low; k < high; k++) {
+            
+            if (j >= high || (i < mid && src[i] <= src[j])) {
+                dst[k] = src[i++];
+                
+            } else {
+                dst[k] = src[j++];
+                inversions += mid - i;
+            }
+        }
+        
+        return inversions;
+    }
+    
+    private static long insertionSort(long[] array, int low, int high) {
+        
+        long inversions = 0;
+        
+        for (int i = low + 1; i < high; i++) {
+            
+            long value = array[i];
+            int j = i - 1;
+            
+            while (j >= low && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            
+            inversions += i - 1 - j;
+            array[j + 1] = value;
+        }
+        
+        return inversions;
+    }
+    
+    /**
+     * Sorts the parallel arrays dstKeys[low, high) and dstIndices[low, high)
+     * by key, using srcKeys and srcIndices as buffers, with the same 
+     * contract as {@link #sort(long[], long[], int, int)}. The sort is 
+     * stable, so indices of equal keys keep their relative order.
+     * 
+     * @param srcKeys
+     * @param srcIndices
+     * @param dstKeys
+     * @param dstIndices
+     * @param low
+     * @param high exclusive
+     * @return the number of inversions found in the keys.
+     */
+    static long sort(long[] srcKeys, int[] srcIndices, long[] dstKeys,
+            int[] dstIndices, int low, int high) {
+        
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            return insertionSort(dstKeys, dstIndices, low, high);
+        }
+        
+        int mid = (low + high) >>> 1;
+        long inversions = sort(dstKeys, dstIndices, srcKeys, srcIndices, low,
+                mid);
+        inversions += sort(dstKeys, dstIndices, srcKeys, srcIndices, mid,
+                high);
+        
+        if (srcKeys[mid - 1] <= srcKeys[mid]) {
+            System.arraycopy(srcKeys, low, dstKeys, low, high - low);
+            System.arraycopy(srcIndices, low, dstIndices, low, high - low);
+            return inversions;
+        }
+        
+        int i = low;
+        int j = mid;
+        
+        for (int k = low; k < high; k++) {
+            
+            if (j >= high || (i < mid && srcKeys[i] <= srcKeys[j])) {
+                dstIndices[k] = srcIndices[i];
+                dstKeys[k] = srcKeys[i++];
+                
+            } else {
+                dstIndices[k] = srcIndices[j];
+                dstKeys[k] = srcKeys[j++];
+                inversions += mid - i;
+            }
+        }
+        
+        return inversions;
+    }
+    
+    private static long insertionSort(long[] keys, int[] indices, int low,
+            int high) {
+        
+        long inversions = 0;
+        
+        for (int i = low + 1; i < high; i++) {
+            
+            long key = keys[i];
+            int index = indices[i];
+            int j = i - 1;
+            
+            while (j >= low && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            
+            inversions += i - 1 - j;
+            keys[j + 1] = key;
+            indices[j + 1] = index;
+        }
+        
+        return inversions;
+    }
+    
+    /**
+     * Fork/join task that sorts dst[low, high) using src as buffer, with the
+     * same contract as {@link MergeSort#sort(int[], int[], int, int)}. Both 
+     * halves are sorted in parallel and then merged by a {@link MergeTask}.
+     */
+    static final class SortTask extends RecursiveTask<Long> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] src;
+        private final int[] dst;
+        private final int low;
+        private final int high;
+        private final int granularity;
+
+        SortTask(int[] src, int[] dst, int low, int high, int granularity) {
+            this.src = src;
+            this.dst = dst;
+            this.low = low;
+            this.high = high;
+            this.granularity = Math.max(granularity, INSERTION_SORT_THRESHOLD);
+        }
+        
+        @Override
+        protected Long compute() {
+            
+            if (high - low < granularity) {
+                return sort(src, dst, low, high);
+            }
+            
+            int mid = (low + high) >>> 1;
+            SortTask left = new SortTask(dst, src, low, mid, granularity);
+            SortTask right = new SortTask(dst, src, mid, high, granularity);
+            
+            left.fork();
+            long inversions = right.compute();
+            inversions += left.join();
+            
+            return inversions + new MergeTask(src, low, mid, mid, high, dst,
+                    low, granularity).compute();
+        }
+    }
+    
+    /**
+     * Fork/join task that merges two sorted runs. The middle element of the
+     * longer run is located in the other run by binary search, splitting the
+     * merge in two independent merges. Elements of the first run that end up
+     * in the second merge are greater than all elements of the second run 
+     * that end up in the first merge, so the cross inversions between the two
+     * halves are simply the product of their lengths.
+     */
+    static final class MergeTask extends RecursiveTask<Long> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] src;
+        private final int low1;
+        private final int high1;
+        private final int low2;
+        private final int high2;
+        private final int[] dst;
+        private final int k;
+        private final int granularity;
+
+        MergeTask(int[] src, int low1, int high1, int low2, int high2,
+                int[] dst, int k, int granularity) {
+            this.src = src;
+            this.low1 = low1;
+            this.high1 = high1;
+            this.low2 = low2;
+            this.high2 = high2;
+            this.dst = dst;
+            this.k = k;
+            this.granularity = Math.max(granularity, INSERTION_SORT_THRESHOLD);
+        }
+        
+        @Override
+        protected Long compute() {
+            
+            int length1 = high1 - low1;
+            int length2 = high2 - low2;
+            
+            if (length1 + length2 < granularity || length1 == 0 
+                    || length2 == 0) {
+                return merge(src, low1, high1, low2, high2, dst, k);
+            }
+            
+            int split1;
+            int split2;
+            
+            if (length1 >= length2) {
+                split1 = (low1 + high1) >>> 1;
+                split2 = lowerBound(src, low2, high2, src[split1]);
+                
+            } else {
+                split2 = (low2 + high2) >>> 1;
+                split1 = upperBound(src, low1, high1, src[split2]);
+            }
+            
+            long crossInversions = (long) (high1 - split1) * (split2 - low2);
+            
+            MergeTask first = new MergeTask(src, low1, split1, low2, split2,
+                    dst, k, granularity);
+            MergeTask second = new MergeTask(src, split1, high1, split2, high2,
+                    dst, k + (split1 - low1) + (split2 - low2), granularity);
+            
+            first.fork();
+            long inversions = crossInversions + second.compute();
+            
+            return inversions + first.join();
+        }
+    }
+    
+    /**
+     * Returns the index of the first element in array[low, high) that is 
+     * greater than or equal to the key.
+     */
+    private static int lowerBound(int[] array, int low, int high, int key) {
+        
+        while (low < high) {
+            
+            int mid = (low + high) >>> 1;
+            
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Returns the index of the first element in array[low, high) that is 
+     * greater than the key.
+     */
+    private static int upperBound(int[] array, int low, int high, int key) {
+        
+        while (low < high) {
+            
+            int mid = (low + high) >>> 1;
+            
+            if (array[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+}
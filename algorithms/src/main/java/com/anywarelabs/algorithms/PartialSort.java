@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import com.anywarelabs.algorithms.Sorting.PivotStrategy;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Partial sort engine used by {@link Sorting}: places the k smallest 
+ * elements of an array, in sorted order, at its front.
+ * 
+ * <p>For small k, a bounded max-heap of the k smallest elements seen so far
+ * is kept in place at the front of the array, and each remaining element 
+ * costs a single comparison against the heap top unless it belongs to the 
+ * result. For larger k, the k-th smallest element is selected first and only
+ * the prefix is sorted.
+ *
+ * @author Marcio Fonseca
+ */
+final class PartialSort {
+    
+    /**
+     * Largest k for which the bounded heap is used.
+     */
+    static final int HEAP_THRESHOLD = 1 << 10;
+    
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    
+    private PartialSort() {
+    }
+    
+    static void sort(int[] array, int k) {
+        
+        if (k == 0) {
+            return;
+        }
+        
+        if (k <= HEAP_THRESHOLD && k <= array.length >>> 4) {
+            heapSort(array, k);
+            return;
+        }
+        
+        DualPivotQuicksort engine = new DualPivotQuicksort(
+                PivotStrategy.MEDIAN_OF_THREE);
+        
+        if (k < array.length) {
+            engine.select(array, 0, array.length - 1, k - 1);
+        }
+        
+        engine.sort(array, 0, k - 1);
+    }
+    
+    private static void heapSort(int[] array, int k) {
+        
+        for (int i = (k >>> 1) - 1; i >= 0; i--) {
+            siftDown(array, i, k);
+        }
+        
+        for (int i = k; i < array.length; i++) {
+            
+            if (array[i] < array[0]) {
+                swap(array, 0, i);
+                siftDown(array, 0, k);
+            }
+        }
+        
+        for (int end = k - 1; end > 0; end--) {
+            swap(array, 0, end);
+            siftDown(array, 0, end);
+        }
+    }
+    
+    private static void siftDown(int[] array, int i, int size) {
+        
+        int value = array[i];
+        
+        while (true) {
+            
+            int child = 2 * i + 1;
+            
+            if (child >= size) {
+                break;
+            }
+            
+            if (child + 1 < size && array[child] < array[child + 1]) {
+                child++;
+            }
+            
+            if (value >= array[child]) {
+                break;
+            }
+            
+            array[i] = array[child];
+            i = child;
+        }
+        
+        array[i] = value;
+    }
+    
+    private static void swap(int[] array, int i, int j) {
+        int aux = array[i];
+        array[i] = array[j];
+        array[j] = aux;
+    }
+    
+    static <T> void sort(T[] array, int k, Comparator<? super T> comparator) {
+        
+        if (k == 0) {
+            return;
+        }
+        
+        if (k <= HEAP_THRESHOLD && k <= array.length >>> 4) {
+            heapSelect(array, 0, array.length - 1, k, comparator);
+            
+        } else if (k < array.length) {
+            select(array, 0, array.length - 1, k - 1, comparator,
+                    DualPivotQuicksort.depthLimit(array.length));
+        }
+        
+        Arrays.sort(array, 0, k, comparator);
+    }
+    
+    /**
+     * Quickselect with three-way partitioning around the median of three 
+     * elements. When the depth limit is exceeded, the rest of the selection
+     * is done by a bounded heap, which takes O(n log k) time.
+     */
+    private static <T> void select(T[] array, int low, int high, int k,
+            Comparator<? super T> comparator, int depth) {
+        
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            
+            if (depth-- == 0) {
+                heapSelect(array, low, high, k - low + 1, comparator);
+                return;
+            }
+            
+            int middle = (low + high) >>> 1;
+            T pivot = medianOfThree(array[low], array[middle], array[high],
+                    comparator);
+            
+            // Dijkstra's three-way partitioning
+            int lt = low;
+            int gt = high;
+            int i = low;
+            
+            while (i <= gt) {
+                
+                int cmp = comparator.compare(array[i], pivot);
+                
+                if (cmp < 0) {
+                    swap(array, lt++, i++);
+                    
+                } else if (cmp > 0) {
+                    swap(array, i, gt--);
+                    
+                } else {
+                    i++;
+                }
+            }
+            
+            if (k < lt) {
+                high = lt - 1;
+                
+            } else if (k > gt) {
+                low = gt + 1;
+                
+            } else {
+                return;
+            }
+        }
+        
+        Arrays.sort(array, low, high + 1, comparator);
+    }
+    
+    private static <T> T medianOfThree(T a, T b, T c, 
+            Comparator<? super T> comparator) {
+        
+        if (comparator.compare(a, b) > 0) {
+            T aux = a;
+            a = b;
+            b = aux;
+        }
+        
+        if (comparator.compare(b, c) <= 0) {
+            return b;
+        }
+        
+        return comparator.compare(a, c) > 0 ? a : c;
+    }
+    
+    /**
+     * Moves the m smallest elements of array[low, high] to its front, in 
+     * heap order.
+     */
+    private static <T> void heapSelect(T[] array, int low, int high, int m,
+            Comparator<? super T> comparator) {
+        
+        for (int i = (m >>> 1) - 1; i >= 0; i--) {
+            siftDown(array, low, i, m, comparator);
+        }
+        
+        for (int i = low + m; i <= high; i++) {
+            
+            if (comparator.compare(array[i], array[low]) < 0) {
+                swap(array, low, i);
+                siftDown(array, low, 0, m, comparator);
+            }
+        }
+    }
+    
+    private static <T> void siftDown(T[] array, int base, int i, int size,
+            Comparator<? super T> comparator) {
+        
+        T value = array[base + i];
+        
+        while (true) {
+            
+            int child = 2 * i + 1;
+            
+            if (child >= size) {
+                break;
+            }
+            
+            if (child + 1 < size && comparator.compare(array[base + child],
+                    array[base + child + 1]) < 0) {
+                child++;
+            }
+            
+            if (comparator.compare(value, array[base + child]) >= 0) {
+                break;
+            }
+            
+            array[base + i] = array[base + child];
+            i = child;
+        }
+        
+        array[base + i] = value;
+    }
+    
+    private static <T> void swap(T[] array, int i, int j) {
+        T aux = array[i];
+        array[i] = array[j];
+        array[j] = aux;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+/**
+ * Least significant digit radix sort engine for int and long keys used by
+ * {@link Sorting}. Keys are sorted one byte at a time by counting sort, with
+ * the sign bit of the most significant byte flipped so negative keys come
+ * first.
+ * 
+ * <p>The histograms of all digits are computed in a single pre-pass. A digit
+ * whose histogram has a single bucket holding every key, e.g. the upper 
+ * bytes of small keys, does not change the order and its pass is skipped.
+ *
+ * @author Marcio Fonseca
+ */
+final class RadixSort {
+    
+    private static final int RADIX = 256;
+    
+    private RadixSort() {
+    }
+    
+    static void sort(int[] array) {
+        
+        int length = array.length;
+        
+        if (length < 2) {
+            return;
+        }
+        
+        int[][] counts = new int[Integer.BYTES][RADIX];
+        
+        for (int value : array) {
+            counts[0][value & 0xff]++;
+            counts[1][(value >>> 8) & 0xff]++;
+            counts[2][(value >>> 16) & 0xff]++;
+            counts[3][(value >>> 24) ^ 0x80]++;
+        }
+        
+        int[] src = array;
+        int[] dst = null;
+        
+        for (int digit = 0; digit < Integer.BYTES; digit++) {
+            
+            int shift = digit * 8;
+            int flip = digit == Integer.BYTES - 1 ? 0x80 : 0;
+            int[] count = counts[digit];
+            
+            if (count[((src[0] >>> shift) & 0xff) ^ flip] == length) {
+                continue;
+            }
+            
+            if (dst == null) {
+                dst = new int[length];
+            }
+            
+            toOffsets(count);
+            
+            for (int value : src) {
+                dst[count[((value >>> shift) & 0xff) ^ flip]++] = value;
+            }
+            
+            int[] aux = src;
+            src = dst;
+            dst = aux;
+        }
+        
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, length);
+        }
+    }
+    
+    static void sort(long[] array) {
+        
+        int length = array.length;
+        
+        if (length < 2) {
+            return;
+        }
+        
+        int[][] counts = new int[Long.BYTES][RADIX];
+        
+        for (long value : array) {
+            
+            for (int digit = 0; digit < Long.BYTES - 1; digit++) {
+                counts[digit][(int) (value >>> (digit * 8)) & 0xff]++;
+            }
+            
+            counts[Long.BYTES - 1][(int) (value >>> 56) ^ 0x80]++;
+        }
+        
+        long[] src = array;
+        long[] dst = null;
+        
+        for (int digit = 0; digit < Long.BYTES; digit++) {
+            
+            int shift = digit * 8;
+            int flip = digit == Long.BYTES - 1 ? 0x80 : 0;
+            int[] count = counts[digit];
+            
+            if (count[((int) (src[0] >>> shift) & 0xff) ^ flip] == length) {
+                continue;
+            }
+            
+            if (dst == null) {
+                dst = new long[length];
+            }
+            
+            toOffsets(count);
+            
+            for (long value : src) {
+                dst[count[((int) (value >>> shift) & 0xff) ^ flip]++] = value;
+            }
+            
+            long[] aux = src;
+            src = dst;
+            dst = aux;
+        }
+        
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, length);
+        }
+    }
+    
+    /**
+     * Replaces the histogram counts by the starting offset of each bucket.
+     * 
+     * @param count 
+     */
+    private static void toOffsets(int[] count) {
+        
+        int sum = 0;
+        
+        for (int i = 0; i < count.length; i++) {
+            int c = count[i];
+            count[i] = sum;
+            sum += c;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import com.anywarelabs.algorithms.datastructures.TraversableGraph;
+import java.util.Arrays;
+
+/**
+ * Dijkstra's shortest path engine for graphs without negative cost edges. 
+ * Tentative distances are kept in an indexed d-ary heap with decrease-key,
+ * so a search runs in O(E log V) time, and results are stored in primitive
+ * arrays, with {@link #UNREACHABLE} for vertices that the source does not 
+ * reach.
+ * 
+ * The arrays are allocated once, so an engine can answer many searches on 
+ * the same graph. Each search only resets the vertices reached by the 
+ * previous one. An engine is not thread-safe.
+ *
+ * @author Marcio Fonseca
+ */
+public final class ShortestPaths {
+    
+    /**
+     * Distance of a vertex that is not reachable from the source.
+     */
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+    
+    private static final int DEFAULT_ARITY = 4;
+    
+    private final TraversableGraph g;
+    private final int arity;
+    private long[] distances;
+    private int[] parents;
+    private int[] reached;
+    private int reachedCount;
+    private IndexedHeap heap;
+    private int source = -1;
+    
+    public ShortestPaths(TraversableGraph g) {
+        this(g, DEFAULT_ARITY);
+    }
+    
+    /**
+     * @param g
+     * @param arity number of children of each heap node.
+     */
+    public ShortestPaths(TraversableGraph g, int arity) {
+        
+        if (arity < 2) {
+            throw new IllegalArgumentException("Invalid arity: " + arity);
+        }
+        
+        this.g = g;
+        this.arity = arity;
+        allocate(g.size());
+    }
+    
+    private void allocate(int vertexCount) {
+        
+        distances = new long[vertexCount];
+        Arrays.fill(distances, UNREACHABLE);
+        parents = new int[vertexCount];
+        Arrays.fill(parents, -1);
+        reached = new int[vertexCount];
+        reachedCount = 0;
+        heap = new IndexedHeap(vertexCount, arity);
+    }
+    
+    /**
+     * Computes the shortest paths from the source vertex to every other 
+     * vertex, replacing the results of the previous search.
+     * 
+     * @param source
+     * @return this engine
+     * @throws IllegalArgumentException if an edge with negative cost is 
+     * reached.
+     * @throws ArithmeticException if a distance overflows a long.
+     */
+    public ShortestPaths search(int source) {
+        
+        if (g.size() != distances.length) {
+            allocate(g.size());
+        } else {
+            reset();
+        }
+        
+        if (source < 0 || source >= distances.length) {
+            throw new IndexOutOfBoundsException("Invalid source: " + source);
+        }
+        
+        this.source = source;
+        reach(source, 0, -1);
+        heap.add(source, 0);
+        
+        while (!heap.isEmpty()) {
+            
+            int vertex = heap.remove();
+            long distance = distances[vertex];
+            
+            for (int i = 0, degree = g.getDegree(vertex); i < degree; i++) {
+                
+                long cost = g.getNeighborCost(vertex, i);
+                
+                if (cost < 0) {
+                    throw new IllegalArgumentException(
+                            "Negative edge cost from vertex " + vertex + ": " 
+                                    + cost);
+                }
+                
+                int target = g.getNeighbor(vertex, i);
+                long dist = Math.addExact(distance, cost);
+                
+                if (distances[target] == UNREACHABLE) {
+                    reach(target, dist, vertex);
+                    heap.add(target, dist);
+                } else if (dist < distances[target]) {
+                    
+                    // settled vertices never improve since costs are not 
+                    // negative, so the target is still in the heap
+                    distances[target] = dist;
+                    parents[target] = vertex;
+                    heap.decreaseKey(target, dist);
+                }
+            }
+        }
+        
+        return this;
+    }
+    
+    private void reach(int vertex, long distance, int parent) {
+        
+        distances[vertex] = distance;
+        parents[vertex] = parent;
+        reached[reachedCount++] = vertex;
+    }
+    
+    private void reset() {
+        
+        for (int i = 0; i < reachedCount; i++) {
+            distances[reached[i]] = UNREACHABLE;
+            parents[reached[i]] = -1;
+        }
+        
+        reachedCount = 0;
+        heap.clear();
+    }
+    
+    /**
+     * @return source vertex of the last search, or -1 before any search.
+     */
+    public int getSource() {
+        return source;
+    }
+    
+    /**
+     * @param vertex
+     * @return shortest distance from the source, or {@link #UNREACHABLE}.
+     */
+    public long getDistance(int vertex) {
+        return distances[vertex];
+    }
+    
+    public boolean isReachable(int vertex) {
+        return distances[vertex] != UNREACHABLE;
+    }
+    
+    /**
+     * @param vertex
+     * @return previous vertex on a shortest path from the source, or -1 for 
+     * the source and unreachable vertices.
+     */
+    public int getParent(int vertex) {
+        return parents[vertex];
+    }
+    
+    /**
+     * @return number of vertices reachable from the source.
+     */
+    public int getReachedCount() {
+        return reachedCount;
+    }
+    
+    /**
+     * @return copy of the distances from the source, with 
+     * {@link #UNREACHABLE} for unreachable vertices.
+     */
+    public long[] getDistances() {
+        return distances.clone();
+    }
+}
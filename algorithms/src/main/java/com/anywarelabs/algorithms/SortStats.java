@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Statistics collected by an instrumented sort. All counters are longs, so 
+ * they do not overflow on large arrays.
+ * 
+ * <p>The partition imbalance histogram has {@link #HISTOGRAM_BUCKETS} 
+ * buckets. Bucket i counts the partitioning steps whose largest part held 
+ * between i / HISTOGRAM_BUCKETS and (i + 1) / HISTOGRAM_BUCKETS of the 
+ * partitioned range. Well-behaved inputs concentrate on the lower buckets, 
+ * while pathological inputs pile up on the last one and trigger heapsort 
+ * fallbacks.
+ *
+ * @author Marcio Fonseca
+ */
+public class SortStats {
+    
+    public static final int HISTOGRAM_BUCKETS = 10;
+    
+    private long comparisons;
+    private long swaps;
+    private int maxDepth;
+    private long heapsortFallbacks;
+    private final long[] imbalanceHistogram = new long[HISTOGRAM_BUCKETS];
+    private long elapsedNanos;
+
+    SortStats() {
+    }
+    
+    void addComparisons(long count) {
+        comparisons += count;
+    }
+    
+    void addSwaps(long count) {
+        swaps += count;
+    }
+    
+    void recordDepth(int depth) {
+        maxDepth = Math.max(maxDepth, depth);
+    }
+    
+    void recordHeapsortFallback() {
+        heapsortFallbacks++;
+    }
+    
+    /**
+     * Records a partitioning step of a range into parts of the given sizes.
+     * 
+     * @param length size of the partitioned range
+     * @param largestPart size of the largest part
+     */
+    void recordPartition(int length, int largestPart) {
+        
+        int bucket = (int) ((long) largestPart * HISTOGRAM_BUCKETS / length);
+        imbalanceHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+    }
+    
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * Returns the number of element exchanges. Each element shifted by 
+     * insertion sort or by a heap sift-down counts as one swap.
+     * 
+     * @return 
+     */
+    public long getSwaps() {
+        return swaps;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getHeapsortFallbacks() {
+        return heapsortFallbacks;
+    }
+
+    public long[] getImbalanceHistogram() {
+        return imbalanceHistogram.clone();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("SortStats: ");
+        builder.append("comparisons = ");
+        builder.append(comparisons);
+        builder.append("; swaps = ");
+        builder.append(swaps);
+        builder.append("; max depth = ");
+        builder.append(maxDepth);
+        builder.append("; heapsort fallbacks = ");
+        builder.append(heapsortFallbacks);
+        builder.append("; imbalance histogram = ");
+        builder.append(Arrays.toString(imbalanceHistogram));
+        builder.append("; elapsed nanos = ");
+        builder.append(elapsedNanos);
+        return builder.toString();
+    }
+}
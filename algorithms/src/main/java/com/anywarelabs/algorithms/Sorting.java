@@ -23,10 +23,15 @@
  */
 package com.anywarelabs.algorithms;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToLongFunction;
 
 /**
  *
@@ -34,138 +39,383 @@ import java.util.List;
  */
 public class Sorting {
     
+    /**
+     * Default range size below which 
+     * {@link #parallelQuicksort(int[], PivotStrategy)} stops splitting work
+     * into parallel tasks.
+     */
+    public static final int DEFAULT_PARALLEL_GRANULARITY = 1 << 13;
+    
+    /**
+     * Arrays with at least this number of elements are sorted by radix sort
+     * in {@link #sort(int[])} and {@link #sort(long[])}. Smaller arrays are 
+     * sorted by quicksort, which avoids the fixed cost of the histograms.
+     */
+    public static final int RADIX_SORT_THRESHOLD = 1 << 10;
+    
     /**
      * Sorts the specified array into ascending numerical order.
      *
-     * <p>Implementation note: The sorting algorithm is a traditional one-pivot
-     * Quicksort.
+     * <p>Implementation note: The sorting algorithm is an introsort-style 
+     * dual-pivot Quicksort. Small ranges are sorted by insertion sort and 
+     * ranges that recurse too deep fall back to heapsort, which guarantees 
+     * O(n log n) performance.
      * 
      * @param array the array to be sorted
      * @return number of comparisons performed
      */
-    public int quicksort(int[] array) {
-        return quicksort(array, 0, array.length - 1,
-                PivotStrategy.MEDIAN_OF_THREE);
+    public long quicksort(int[] array) {
+        return quicksort(array, PivotStrategy.MEDIAN_OF_THREE);
     }
     
     /**
      * Sorts the specified array into ascending numerical order.
      * 
-     * <p>Implementation note: The sorting algorithm is a traditional one-pivot
-     * Quicksort.
+     * <p>Implementation note: The sorting algorithm is an introsort-style 
+     * dual-pivot Quicksort. Small ranges are sorted by insertion sort and 
+     * ranges that recurse too deep fall back to heapsort, which guarantees 
+     * O(n log n) performance.
      * 
      * @param array
      * @param pivotStrategy rule for choosing pivots
      * @return number of comparisons performed
      */
-    public int quicksort(int[] array, PivotStrategy pivotStrategy) {
-        return quicksort(array, 0, array.length - 1, pivotStrategy);
+    public long quicksort(int[] array, PivotStrategy pivotStrategy) {
+        
+        DualPivotQuicksort engine = new DualPivotQuicksort(pivotStrategy);
+        engine.sort(array, 0, array.length - 1);
+        return engine.getComparisons();
     }
     
-    private int quicksort(int[] array, int low, int high,
+    /**
+     * Sorts the specified array into ascending numerical order, as 
+     * {@link #quicksort(int[], PivotStrategy)}, and collects statistics 
+     * about the sort. The statistics are only collected by this method, so
+     * the other quicksort methods carry no instrumentation overhead.
+     * 
+     * @param array
+     * @param pivotStrategy rule for choosing pivots
+     * @return comparisons, swaps, maximum recursion depth, partition 
+     * imbalance and elapsed time of the sort
+     */
+    public SortStats quicksortWithStats(int[] array, 
             PivotStrategy pivotStrategy) {
         
-        if (low >= high) {
-            return 0;
+        SortStats stats = new SortStats();
+        DualPivotQuicksort engine = new DualPivotQuicksort(pivotStrategy,
+                stats);
+        
+        long start = System.nanoTime();
+        engine.sort(array, 0, array.length - 1);
+        stats.setElapsedNanos(System.nanoTime() - start);
+        
+        stats.addComparisons(engine.getComparisons());
+        
+        return stats;
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order, choosing 
+     * between radix sort and quicksort according to the array length.
+     * 
+     * @param array the array to be sorted
+     */
+    public void sort(int[] array) {
+        
+        if (array.length >= RADIX_SORT_THRESHOLD) {
+            radixSort(array);
+            
+        } else {
+            quicksort(array);
         }
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order, choosing 
+     * between radix sort and quicksort according to the array length.
+     * 
+     * @param array the array to be sorted
+     */
+    public void sort(long[] array) {
+        
+        if (array.length >= RADIX_SORT_THRESHOLD) {
+            radixSort(array);
             
-        int pivotIndex = choosePivot(array, low, high, pivotStrategy);
-        int comparisons = high - low;
-        pivotIndex = partition(array, low, high, pivotIndex);
-        comparisons += quicksort(array, low, pivotIndex-1, pivotStrategy);
-        comparisons += quicksort(array, pivotIndex+1, high, pivotStrategy);
-        return comparisons;
+        } else {
+            quicksort(array);
+        }
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order.
+     * 
+     * <p>Implementation note: The sorting algorithm is a least significant 
+     * digit radix sort on bytes, which performs no comparisons. Passes on 
+     * bytes shared by all keys are skipped.
+     * 
+     * @param array the array to be sorted
+     */
+    public void radixSort(int[] array) {
+        RadixSort.sort(array);
     }
     
     /**
-     * Returns the index of the pivot, according to the chosen strategy. The 
-     * median-of-three strategy offers much better performance when the input 
-     * array is nearly sorted.
+     * Sorts the specified array into ascending numerical order.
+     * 
+     * <p>Implementation note: The sorting algorithm is a least significant 
+     * digit radix sort on bytes, which performs no comparisons. Passes on 
+     * bytes shared by all keys are skipped.
+     * 
+     * @param array the array to be sorted
+     */
+    public void radixSort(long[] array) {
+        RadixSort.sort(array);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order using all
+     * the threads of the common {@link ForkJoinPool}.
+     * 
+     * <p>Implementation note: Same engine as 
+     * {@link #quicksort(int[], PivotStrategy)}, where the parts of every
+     * partitioning step are sorted by parallel tasks until they get smaller
+     * than {@link #DEFAULT_PARALLEL_GRANULARITY}.
      * 
      * @param array
-     * @param low
-     * @param high
-     * @param strategy
-     * @return the index of the chosen pivot
+     * @param pivotStrategy rule for choosing pivots
+     * @return number of comparisons performed by all tasks
      */
-    private int choosePivot(int[] array, int low, int high,
-            PivotStrategy strategy) {
+    public long parallelQuicksort(int[] array, PivotStrategy pivotStrategy) {
+        return parallelQuicksort(array, pivotStrategy, 
+                DEFAULT_PARALLEL_GRANULARITY);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order using all
+     * the threads of the common {@link ForkJoinPool}.
+     * 
+     * @param array
+     * @param pivotStrategy rule for choosing pivots
+     * @param granularity ranges smaller than this are sorted sequentially
+     * @return number of comparisons performed by all tasks
+     */
+    public long parallelQuicksort(int[] array, PivotStrategy pivotStrategy,
+            int granularity) {
         
-        if (strategy.equals(PivotStrategy.FIRST)) {
-            return low;
+        if (granularity <= 0) {
+            throw new IllegalArgumentException(
+                    "Granularity must be positive: " + granularity);
+        }
         
-        } else if (strategy.equals(PivotStrategy.LAST)) {
-            return high;
+        return ForkJoinPool.commonPool().invoke(new DualPivotQuicksort.SortTask(
+                array, 0, array.length - 1, pivotStrategy, granularity));
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order.
+     * 
+     * <p>Implementation note: Same engine as {@link #quicksort(int[])}.
+     * 
+     * @param array the array to be sorted
+     * @return number of comparisons performed
+     */
+    public long quicksort(long[] array) {
+        return quicksort(array, PivotStrategy.MEDIAN_OF_THREE);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order.
+     * 
+     * <p>Implementation note: Same engine as 
+     * {@link #quicksort(int[], PivotStrategy)}.
+     * 
+     * @param array
+     * @param pivotStrategy rule for choosing pivots
+     * @return number of comparisons performed
+     */
+    public long quicksort(long[] array, PivotStrategy pivotStrategy) {
         
-        } else { // MEDIAN_OF_THREE
-            
-            int middle = (low + high) >>> 1;
-            
-            List list = Arrays.asList(array[low], array[middle], array[high]);
-            mergeSort(list);
-            
-            int median = (int) list.get(1);
-            
-            if (median == array[low]) {
-                return low;
-            
-            } 
-            
-            if (median == array[high]) {
-                return high;
-            }
-            
-            return middle;
-        }
+        DualPivotQuicksort engine = new DualPivotQuicksort(pivotStrategy);
+        engine.sort(array, 0, array.length - 1);
+        return engine.getComparisons();
     }
-
+    
+    /**
+     * Sorts the specified array into ascending numerical order. NaN values
+     * are placed at the end of the array and -0.0 is treated as equal to 0.0.
+     * 
+     * <p>Implementation note: Same engine as {@link #quicksort(int[])}.
+     * 
+     * @param array the array to be sorted
+     * @return number of comparisons performed
+     */
+    public long quicksort(double[] array) {
+        return quicksort(array, PivotStrategy.MEDIAN_OF_THREE);
+    }
+    
     /**
-     * Partitions the array around the pivot.
+     * Sorts the specified array into ascending numerical order. NaN values
+     * are placed at the end of the array and -0.0 is treated as equal to 0.0.
+     * 
+     * <p>Implementation note: Same engine as 
+     * {@link #quicksort(int[], PivotStrategy)}.
      * 
      * @param array
-     * @param low
-     * @param high
-     * @param pivotIndex new index for the pivot
-     * @return 
+     * @param pivotStrategy rule for choosing pivots
+     * @return number of comparisons performed
      */
-    private int partition(int[] array, int low, int high, int pivotIndex) {
+    public long quicksort(double[] array, PivotStrategy pivotStrategy) {
         
-        if (pivotIndex > low) {
-            // swap with pivot with first element
-            swap(array, low, pivotIndex);
+        DualPivotQuicksort engine = new DualPivotQuicksort(pivotStrategy);
+        engine.sort(array, 0, array.length - 1);
+        return engine.getComparisons();
+    }
+    
+    /**
+     * Returns the k-th smallest element of the specified array, without 
+     * sorting it. The array is reordered so that the element is at index k,
+     * with smaller or equal elements before it and greater or equal elements
+     * after it.
+     * 
+     * <p>Implementation note: The selection algorithm is an introselect on 
+     * the dual-pivot partitioning of {@link #quicksort(int[])}, which falls
+     * back to median-of-medians pivots when the partitions are unbalanced. 
+     * The running time is O(n).
+     * 
+     * @param array
+     * @param k zero-based rank of the element
+     * @return the k-th smallest element
+     */
+    public int select(int[] array, int k) {
+        
+        checkRank(array, k);
+        return new DualPivotQuicksort(PivotStrategy.MEDIAN_OF_THREE).select(
+                array, 0, array.length - 1, k);
+    }
+    
+    /**
+     * Returns the elements of the specified ranks, without sorting the 
+     * array. The array is reordered so that each selected element is at the
+     * index given by its rank, as in {@link #select(int[], int)}.
+     * 
+     * @param array
+     * @param ranks zero-based ranks of the elements, in any order
+     * @return the selected elements, in the order of the ranks
+     */
+    public int[] multiSelect(int[] array, int... ranks) {
+        
+        for (int k : ranks) {
+            checkRank(array, k);
         }
         
-        int i = low + 1;
-        int j = i;
+        int[] sortedRanks = ranks.clone();
+        Arrays.sort(sortedRanks);
         
-        while (j <= high) {
-            
-            if (array[j] < array[low]) {
-                swap(array, j, i);
-                i++;
-            }
-            
-            j++;
+        new DualPivotQuicksort(PivotStrategy.MEDIAN_OF_THREE).select(array, 0,
+                array.length - 1, sortedRanks, 0, sortedRanks.length - 1, 
+                DualPivotQuicksort.depthLimit(array.length));
+        
+        int[] selected = new int[ranks.length];
+        
+        for (int i = 0; i < ranks.length; i++) {
+            selected[i] = array[ranks[i]];
         }
         
-        // place pivot in the right place
-        swap(array, i-1, low);
+        return selected;
+    }
+    
+    /**
+     * Places the k smallest elements of the specified array, in ascending 
+     * numerical order, at its front. The order of the other elements is 
+     * unspecified.
+     * 
+     * <p>Implementation note: For small k, the k smallest elements are kept
+     * in a bounded heap at the front of the array while the rest is scanned.
+     * Otherwise the k-th smallest element is selected as in 
+     * {@link #select(int[], int)} and only the first k elements are sorted.
+     * 
+     * @param array
+     * @param k number of elements to sort
+     */
+    public void partialSort(int[] array, int k) {
         
-        // returns new index for the pivot
-        return i-1;
+        checkLength(array.length, k);
+        PartialSort.sort(array, k);
     }
     
-    private void swap(int[] array, int i, int j) {
-        int aux = array[i];
-        array[i] = array[j];
-        array[j] = aux;
+    /**
+     * Places the k smallest elements of the specified array, sorted 
+     * according to the {@linkplain Comparable natural ordering} of its 
+     * elements, at its front. The order of the other elements is 
+     * unspecified.
+     * 
+     * @param <T>
+     * @param array
+     * @param k number of elements to sort
+     */
+    public <T extends Comparable<? super T>> void partialSort(T[] array,
+            int k) {
+        partialSort(array, k, Comparator.naturalOrder());
     }
     
+    /**
+     * Places the k smallest elements of the specified array, sorted 
+     * according to the comparator, at its front. The order of the other 
+     * elements is unspecified.
+     * 
+     * <p>Implementation note: Same strategy as 
+     * {@link #partialSort(int[], int)}, with a three-way quickselect that 
+     * falls back to the bounded heap when the recursion gets too deep.
+     * 
+     * @param <T>
+     * @param array
+     * @param k number of elements to sort
+     * @param comparator
+     */
+    public <T> void partialSort(T[] array, int k, 
+            Comparator<? super T> comparator) {
+        
+        checkLength(array.length, k);
+        PartialSort.sort(array, k, comparator);
+    }
+    
+    private void checkLength(int length, int k) {
+        
+        if (k < 0 || k > length) {
+            throw new IllegalArgumentException("Length out of range: " + k);
+        }
+    }
+    
+    private void checkRank(int[] array, int k) {
+        
+        if (k < 0 || k >= array.length) {
+            throw new IllegalArgumentException("Rank out of range: " + k);
+        }
+    }
+    
+    /**
+     * Rules for choosing the two pivots of each partitioning step. FIRST and
+     * LAST take the two elements at the respective end of the range, while
+     * MEDIAN_OF_THREE takes the tertiles of five evenly spaced samples.
+     */
     public enum PivotStrategy {
         
         FIRST, LAST, MEDIAN_OF_THREE;
     }
     
+    /**
+     * Sorts a binary file of little-endian 32-bit integers in place, without
+     * loading it on the Java heap.
+     * 
+     * <p>Implementation note: See {@link MappedFileSort}.
+     * 
+     * @param file
+     * @throws IOException 
+     */
+    public void sortMappedFile(Path file) throws IOException {
+        new MappedFileSort().sort(file);
+    }
+    
     /**
      * Sorts the specified list into ascending order, according to the
      * {@linkplain Comparable natural ordering} of its elements.
@@ -186,6 +436,144 @@ public class Sorting {
         return mergeSortImpl(list, 0, list.size() - 1);
     }
     
+    /**
+     * Sorts the specified array into ascending numerical order.
+     * 
+     * The implementation uses a merge sort that counts the number of 
+     * inversions found in the original array. A single buffer of the array 
+     * size is allocated and no allocation happens on the merge steps.
+     * 
+     * @param array the array to be sorted.
+     * @return the number of inversions found in the original array.
+     */
+    public long mergeSort(int[] array) {
+        return MergeSort.sort(array.clone(), array, 0, array.length);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order.
+     * 
+     * The implementation uses a merge sort that counts the number of 
+     * inversions found in the original array. A single buffer of the array 
+     * size is allocated and no allocation happens on the merge steps.
+     * 
+     * @param array the array to be sorted.
+     * @return the number of inversions found in the original array.
+     */
+    public long mergeSort(long[] array) {
+        return MergeSort.sort(array.clone(), array, 0, array.length);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order and counts 
+     * the number of inversions found in the original array.
+     * 
+     * <p>Implementation note: The sorting algorithm is an adaptive merge sort
+     * in the style of TimSort, which merges the ascending and descending 
+     * runs already present in the array. It runs in close to linear time on
+     * nearly sorted input. See {@link AdaptiveMergeSort}.
+     * 
+     * @param array the array to be sorted.
+     * @return the number of inversions found in the original array.
+     */
+    public long adaptiveMergeSort(int[] array) {
+        return AdaptiveMergeSort.sort(array);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order using all
+     * the threads of the common {@link ForkJoinPool}, and counts the number 
+     * of inversions found in the original array.
+     * 
+     * <p>Implementation note: Same merge sort as {@link #mergeSort(int[])}, 
+     * where both the recursive calls and the merge steps are split into 
+     * parallel tasks until they get smaller than 
+     * {@link #DEFAULT_PARALLEL_GRANULARITY}.
+     * 
+     * @param array the array to be sorted.
+     * @return the number of inversions found in the original array.
+     */
+    public long parallelMergeSort(int[] array) {
+        return parallelMergeSort(array, DEFAULT_PARALLEL_GRANULARITY);
+    }
+    
+    /**
+     * Sorts the specified array into ascending numerical order using all
+     * the threads of the common {@link ForkJoinPool}, and counts the number 
+     * of inversions found in the original array.
+     * 
+     * @param array the array to be sorted.
+     * @param granularity ranges smaller than this are sorted and merged 
+     * sequentially
+     * @return the number of inversions found in the original array.
+     */
+    public long parallelMergeSort(int[] array, int granularity) {
+        
+        if (granularity <= 0) {
+            throw new IllegalArgumentException(
+                    "Granularity must be positive: " + granularity);
+        }
+        
+        return ForkJoinPool.commonPool().invoke(new MergeSort.SortTask(
+                array.clone(), array, 0, array.length, granularity));
+    }
+    
+    /**
+     * Sorts the specified array into ascending order of the keys extracted
+     * by the given function. The sort is stable: items with equal keys keep
+     * their relative order.
+     * 
+     * <p>Implementation note: The key of each item is extracted once into a
+     * primitive array, which is sorted together with the item indices by 
+     * merge sort. The items are then permuted according to the sorted 
+     * indices, so no comparator or compareTo calls are made.
+     * 
+     * @param <T>
+     * @param items the array to be sorted.
+     * @param key function that extracts the sort key of an item
+     * @return the number of inversions found in the keys of the original 
+     * array.
+     */
+    public <T> long sortBy(T[] items, ToLongFunction<? super T> key) {
+        
+        int length = items.length;
+        long[] keys = new long[length];
+        int[] indices = new int[length];
+        
+        for (int i = 0; i < length; i++) {
+            keys[i] = key.applyAsLong(items[i]);
+            indices[i] = i;
+        }
+        
+        long inversions = MergeSort.sort(keys.clone(), indices.clone(), keys,
+                indices, 0, length);
+        
+        T[] original = items.clone();
+        
+        for (int i = 0; i < length; i++) {
+            items[i] = original[indices[i]];
+        }
+        
+        return inversions;
+    }
+    
+    /**
+     * Sorts the integers of a text file that may not fit in memory, and 
+     * writes them to the output file, one per line.
+     * 
+     * <p>Implementation note: See {@link ExternalMergeSort}.
+     * 
+     * @param input file with integers separated by white space
+     * @param output
+     * @param memoryBudget approximate number of bytes used for data
+     * @return the number of inversions found in the input file.
+     * @throws IOException 
+     */
+    public long externalMergeSort(Path input, Path output, long memoryBudget)
+            throws IOException {
+        return new ExternalMergeSort(memoryBudget).sort(input, output);
+    }
+    
     /**
      * Merge sort implementation. The original list parameter is modified to 
      * avoid using additional space.
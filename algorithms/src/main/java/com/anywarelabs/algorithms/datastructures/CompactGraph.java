@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Graph in compressed sparse row layout, with dense vertex labels and arcs
+ * indexed by longs. The arcs leaving vertex v are 
+ * [getArcStart(v), getArcEnd(v)), and each undirected edge is stored as 
+ * two arcs, one in each direction.
+ *
+ * @author Marcio Fonseca
+ */
+public interface CompactGraph extends TraversableGraph {
+    
+    /**
+     * Returns the number of edges. Each undirected edge is counted once.
+     * 
+     * @return 
+     */
+    long getEdgeCount();
+    
+    /**
+     * Returns the number of stored arcs, twice the number of edges in an 
+     * undirected graph.
+     * 
+     * @return 
+     */
+    long getArcCount();
+    
+    long getTotalEdgeCost();
+    
+    /**
+     * Returns the first arc leaving the vertex.
+     * 
+     * @param vertex
+     * @return 
+     */
+    long getArcStart(int vertex);
+    
+    /**
+     * Returns one past the last arc leaving the vertex.
+     * 
+     * @param vertex
+     * @return 
+     */
+    long getArcEnd(int vertex);
+    
+    int getTarget(long arc);
+    
+    long getCost(long arc);
+    
+    @Override
+    default int getDegree(int vertex) {
+        return (int) (getArcEnd(vertex) - getArcStart(vertex));
+    }
+    
+    @Override
+    default int getNeighbor(int vertex, int index) {
+        return getTarget(getArcStart(vertex) + index);
+    }
+    
+    @Override
+    default long getNeighborCost(int vertex, int index) {
+        return getCost(getArcStart(vertex) + index);
+    }
+    
+    @Override
+    default void forEachNeighbor(int vertex, IntConsumer action) {
+        
+        for (long arc = getArcStart(vertex), end = getArcEnd(vertex); 
+                arc < end; arc++) {
+            action.accept(getTarget(arc));
+        }
+    }
+    
+    @Override
+    default void forEachArc(int vertex, IntIntLongConsumer action) {
+        
+        for (long arc = getArcStart(vertex), end = getArcEnd(vertex); 
+                arc < end; arc++) {
+            action.accept(vertex, getTarget(arc), getCost(arc));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Graph that many threads can query while edges are added. Readers take an
+ * immutable {@link Snapshot}, a consistent view of the graph that later 
+ * writes never change, without locks; writers are serialized among 
+ * themselves but never wait for readers.
+ * 
+ * <p>Each snapshot is a table of segments of {@value #SEGMENT_SIZE} 
+ * vertices, each vertex holding its arcs in arrays. A write copies the 
+ * table and the segments it touches, and appends the new arcs to the arrays
+ * in place, past the length visible to older snapshots, so the arrays are 
+ * only copied when they are full. The new snapshot is then published with 
+ * a volatile write. Adding a batch of edges with 
+ * {@link #addEdges(int[], int[], long[])} copies each segment once.
+ * 
+ * <p>Vertex labels are dense, in [0, size()), and grow with the largest 
+ * label added. As in {@link CsrGraph}, undirected edges are stored as two 
+ * arcs.
+ *
+ * @author Marcio Fonseca
+ */
+public final class ConcurrentGraph {
+    
+    private static final int SHIFT = 10;
+    static final int SEGMENT_SIZE = 1 << SHIFT;
+    private static final int MASK = SEGMENT_SIZE - 1;
+    
+    private final boolean directed;
+    private volatile Snapshot snapshot;
+    
+    public ConcurrentGraph(boolean directed) {
+        this.directed = directed;
+        this.snapshot = new Snapshot(new Adjacency[0][], 0, 0, 0, directed);
+    }
+    
+    public boolean isDirected() {
+        return directed;
+    }
+    
+    /**
+     * Returns the latest snapshot of the graph.
+     * 
+     * @return 
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+    
+    public void addEdge(int source, int target, long cost) {
+        addEdges(new int[] {source}, new int[] {target}, new long[] {cost});
+    }
+    
+    /**
+     * Adds the edges and publishes them in a single snapshot.
+     * 
+     * @param sources
+     * @param targets
+     * @param costs 
+     */
+    public synchronized void addEdges(int[] sources, int[] targets, 
+            long[] costs) {
+        
+        int count = sources.length;
+        
+        if (targets.length != count || costs.length != count) {
+            throw new IllegalArgumentException("Edge arrays differ in length");
+        }
+        
+        Snapshot current = snapshot;
+        int vertexCount = current.vertexCount;
+        long total = current.totalEdgeCost;
+        
+        for (int i = 0; i < count; i++) {
+            
+            checkVertex(sources[i]);
+            checkVertex(targets[i]);
+            vertexCount = Math.max(vertexCount, 
+                    Math.max(sources[i], targets[i]) + 1);
+            total += costs[i];
+        }
+        
+        Adjacency[][] segments = Arrays.copyOf(current.segments, 
+                (vertexCount + MASK) >>> SHIFT);
+        // segments already copied by this write
+        boolean[] copied = new boolean[segments.length];
+        
+        for (int i = 0; i < count; i++) {
+            
+            append(segments, copied, sources[i], targets[i], costs[i]);
+            
+            if (!directed) {
+                append(segments, copied, targets[i], sources[i], costs[i]);
+            }
+        }
+        
+        snapshot = new Snapshot(segments, vertexCount, 
+                current.edgeCount + count, total, directed);
+    }
+    
+    private static void checkVertex(int vertex) {
+        
+        // the vertex count is one more than the largest label
+        if (vertex < 0 || vertex == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Vertex out of range: " 
+                    + vertex);
+        }
+    }
+    
+    private static void append(Adjacency[][] segments, boolean[] copied, 
+            int source, int target, long cost) {
+        
+        int index = source >>> SHIFT;
+        
+        if (!copied[index]) {
+            
+            segments[index] = segments[index] == null 
+                    ? new Adjacency[SEGMENT_SIZE] 
+                    : segments[index].clone();
+            copied[index] = true;
+        }
+        
+        Adjacency[] segment = segments[index];
+        Adjacency adjacency = segment[source & MASK];
+        segment[source & MASK] = adjacency == null 
+                ? new Adjacency(target, cost) 
+                : adjacency.append(target, cost);
+    }
+    
+    @Override
+    public String toString() {
+        return snapshot.toString();
+    }
+    
+    /**
+     * Arcs leaving a vertex. The arrays may be shared with newer versions 
+     * of the same vertex, which only write past this length.
+     */
+    private static final class Adjacency {
+        
+        private final int[] targets;
+        private final long[] costs;
+        private final int length;
+        
+        Adjacency(int target, long cost) {
+            this(new int[] {target}, new long[] {cost}, 1);
+        }
+        
+        private Adjacency(int[] targets, long[] costs, int length) {
+            this.targets = targets;
+            this.costs = costs;
+            this.length = length;
+        }
+        
+        /**
+         * Only called on the newest version of a vertex, by the writer 
+         * holding the lock.
+         */
+        Adjacency append(int target, long cost) {
+            
+            int[] newTargets = targets;
+            long[] newCosts = costs;
+            
+            if (length == targets.length) {
+                newTargets = Arrays.copyOf(targets, 2 * length);
+                newCosts = Arrays.copyOf(costs, 2 * length);
+            }
+            
+            newTargets[length] = target;
+            newCosts[length] = cost;
+            return new Adjacency(newTargets, newCosts, length + 1);
+        }
+    }
+    
+    /**
+     * Immutable view of a concurrent graph at some point in time.
+     */
+    public static final class Snapshot implements TraversableGraph {
+        
+        private final Adjacency[][] segments;
+        private final int vertexCount;
+        private final long edgeCount;
+        private final long totalEdgeCost;
+        private final boolean directed;
+        
+        private Snapshot(Adjacency[][] segments, int vertexCount, 
+                long edgeCount, long totalEdgeCost, boolean directed) {
+            
+            this.segments = segments;
+            this.vertexCount = vertexCount;
+            this.edgeCount = edgeCount;
+            this.totalEdgeCost = totalEdgeCost;
+            this.directed = directed;
+        }
+        
+        private Adjacency getAdjacency(int vertex) {
+            
+            if (vertex < 0 || vertex >= vertexCount) {
+                throw new IndexOutOfBoundsException("Vertex: " + vertex);
+            }
+            
+            Adjacency[] segment = segments[vertex >>> SHIFT];
+            return segment == null ? null : segment[vertex & MASK];
+        }
+        
+        @Override
+        public int size() {
+            return vertexCount;
+        }
+        
+        @Override
+        public boolean isDirected() {
+            return directed;
+        }
+        
+        /**
+         * Returns the number of edges. Each undirected edge is counted once.
+         * 
+         * @return 
+         */
+        public long getEdgeCount() {
+            return edgeCount;
+        }
+        
+        public long getTotalEdgeCost() {
+            return totalEdgeCost;
+        }
+        
+        @Override
+        public int getDegree(int vertex) {
+            
+            Adjacency adjacency = getAdjacency(vertex);
+            return adjacency == null ? 0 : adjacency.length;
+        }
+        
+        @Override
+        public int getNeighbor(int vertex, int index) {
+            return getAdjacency(vertex, index).targets[index];
+        }
+        
+        @Override
+        public long getNeighborCost(int vertex, int index) {
+            return getAdjacency(vertex, index).costs[index];
+        }
+        
+        // the arrays may hold newer arcs past the length of this version, 
+        // and isolated vertices have no arrays at all
+        private Adjacency getAdjacency(int vertex, int index) {
+            
+            Adjacency adjacency = getAdjacency(vertex);
+            
+            if (index < 0 || adjacency == null || index >= adjacency.length) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            
+            return adjacency;
+        }
+        
+        @Override
+        public void forEachNeighbor(int vertex, IntConsumer action) {
+            
+            Adjacency adjacency = getAdjacency(vertex);
+            
+            if (adjacency == null) {
+                return;
+            }
+            
+            for (int i = 0; i < adjacency.length; i++) {
+                action.accept(adjacency.targets[i]);
+            }
+        }
+        
+        @Override
+        public void forEachArc(int vertex, IntIntLongConsumer action) {
+            
+            Adjacency adjacency = getAdjacency(vertex);
+            
+            if (adjacency == null) {
+                return;
+            }
+            
+            for (int i = 0; i < adjacency.length; i++) {
+                action.accept(vertex, adjacency.targets[i], 
+                        adjacency.costs[i]);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            
+            StringBuilder builder = new StringBuilder("ConcurrentGraph: ");
+            builder.append(vertexCount);
+            builder.append(" vertices, ");
+            builder.append(edgeCount);
+            builder.append(directed ? " directed" : " undirected");
+            builder.append(" edges");
+            return builder.toString();
+        }
+    }
+}
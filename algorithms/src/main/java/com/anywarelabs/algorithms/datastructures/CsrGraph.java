@@ -0,0 +1,358 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import com.anywarelabs.algorithms.datastructures.DirectedGraph.DirectedEdge;
+import com.anywarelabs.algorithms.datastructures.UndirectedGraph.UndirectedEdge;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable graph in compressed sparse row (CSR) layout. The arcs leaving 
+ * vertex v are stored in [getArcStart(v), getArcEnd(v)) of two parallel 
+ * arrays of targets and costs, so the whole graph takes 4 * (V + 1) + 
+ * 8 * A bytes, where A is the number of arcs.
+ * 
+ * <p>In an undirected graph each edge is stored as two arcs, one in each 
+ * direction. Vertex labels are dense, in [0, size()).
+ *
+ * @author Marcio Fonseca
+ */
+public final class CsrGraph implements CompactGraph {
+    
+    private static final int MAX_ARC_COUNT = Integer.MAX_VALUE - 8;
+    
+    private final int[] offsets;
+    private final int[] targets;
+    private final long[] costs;
+    private final boolean directed;
+    private final int edgeCount;
+    private final long totalEdgeCost;
+    
+    /**
+     * Creates a graph from parallel arrays of edges. Arcs leaving the same 
+     * vertex keep the order of the input edges.
+     * 
+     * @param vertexCount
+     * @param sources
+     * @param targets
+     * @param costs
+     * @param directed 
+     */
+    public CsrGraph(int vertexCount, int[] sources, int[] targets, 
+            long[] costs, boolean directed) {
+        
+        int count = sources.length;
+        
+        if (targets.length != count || costs.length != count) {
+            throw new IllegalArgumentException("Edge arrays differ in length");
+        }
+        
+        long arcCount = directed ? count : 2L * count;
+        
+        if (arcCount > MAX_ARC_COUNT) {
+            throw new IllegalArgumentException("Too many edges: " + count);
+        }
+        
+        this.directed = directed;
+        this.edgeCount = count;
+        this.offsets = new int[vertexCount + 1];
+        this.targets = new int[(int) arcCount];
+        this.costs = new long[(int) arcCount];
+        
+        long total = 0;
+        
+        for (int i = 0; i < count; i++) {
+            
+            checkVertex(sources[i], vertexCount);
+            checkVertex(targets[i], vertexCount);
+            
+            offsets[sources[i] + 1]++;
+            
+            if (!directed) {
+                offsets[targets[i] + 1]++;
+            }
+            
+            total += costs[i];
+        }
+        
+        this.totalEdgeCost = total;
+        
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        
+        // counting sort of the edges by source, using a copy of the offsets
+        // as insertion cursors
+        int[] next = Arrays.copyOf(offsets, vertexCount);
+        
+        for (int i = 0; i < count; i++) {
+            
+            int arc = next[sources[i]]++;
+            this.targets[arc] = targets[i];
+            this.costs[arc] = costs[i];
+            
+            if (!directed) {
+                arc = next[targets[i]]++;
+                this.targets[arc] = sources[i];
+                this.costs[arc] = costs[i];
+            }
+        }
+    }
+    
+    private CsrGraph(int[] offsets, int[] targets, long[] costs, 
+            boolean directed, int edgeCount, long totalEdgeCost) {
+        
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+        this.directed = directed;
+        this.edgeCount = edgeCount;
+        this.totalEdgeCost = totalEdgeCost;
+    }
+    
+    private static void checkVertex(int vertex, int vertexCount) {
+        
+        if (vertex < 0 || vertex >= vertexCount) {
+            throw new IllegalArgumentException("Vertex out of range: " 
+                    + vertex);
+        }
+    }
+    
+    /**
+     * Converts a directed graph. Vertex labels are kept, and labels without 
+     * a vertex become isolated vertices.
+     * 
+     * @param g
+     * @return 
+     */
+    public static CsrGraph of(DirectedGraph g) {
+        
+        int count = g.edges == null ? 0 : g.edges.size();
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        long[] costs = new long[count];
+        
+        for (int j = 0; j < count; j++) {
+            
+            DirectedEdge e = g.edges.get(j);
+            sources[j] = e.getSource();
+            targets[j] = e.getTarget();
+            costs[j] = e.getCost();
+        }
+        
+        return new CsrGraph(labelCount(g), sources, targets, costs, true);
+    }
+    
+    /**
+     * Converts an undirected graph. Vertex labels are kept, and labels 
+     * without a vertex become isolated vertices.
+     * 
+     * @param g
+     * @return 
+     */
+    public static CsrGraph of(UndirectedGraph g) {
+        
+        int count = g.edges == null ? 0 : g.edges.size();
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        long[] costs = new long[count];
+        
+        for (int j = 0; j < count; j++) {
+            
+            UndirectedEdge e = g.edges.get(j);
+            int either = e.getEither();
+            sources[j] = either;
+            targets[j] = e.getOther(either);
+            costs[j] = e.getCost();
+        }
+        
+        return new CsrGraph(labelCount(g), sources, targets, costs, false);
+    }
+    
+    private static int labelCount(Graph<?> g) {
+        return g.vertices == null ? 0 : g.vertices.size();
+    }
+    
+    /**
+     * Returns the graph with every arc reversed. An undirected graph is its
+     * own transpose.
+     * 
+     * @return 
+     */
+    public CsrGraph transpose() {
+        
+        if (!directed) {
+            return this;
+        }
+        
+        int vertexCount = size();
+        int[] reversedOffsets = new int[vertexCount + 1];
+        int[] reversedTargets = new int[targets.length];
+        long[] reversedCosts = new long[costs.length];
+        
+        for (int target : targets) {
+            reversedOffsets[target + 1]++;
+        }
+        
+        for (int v = 0; v < vertexCount; v++) {
+            reversedOffsets[v + 1] += reversedOffsets[v];
+        }
+        
+        int[] next = Arrays.copyOf(reversedOffsets, vertexCount);
+        
+        for (int v = 0; v < vertexCount; v++) {
+            
+            for (int arc = offsets[v]; arc < offsets[v + 1]; arc++) {
+                
+                int reversed = next[targets[arc]]++;
+                reversedTargets[reversed] = v;
+                reversedCosts[reversed] = costs[arc];
+            }
+        }
+        
+        return new CsrGraph(reversedOffsets, reversedTargets, reversedCosts, 
+                true, edgeCount, totalEdgeCost);
+    }
+    
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+    
+    @Override
+    public int size() {
+        return offsets.length - 1;
+    }
+    
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+    
+    @Override
+    public long getArcCount() {
+        return targets.length;
+    }
+    
+    @Override
+    public long getTotalEdgeCost() {
+        return totalEdgeCost;
+    }
+    
+    @Override
+    public int getDegree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+    
+    @Override
+    public int getNeighbor(int vertex, int index) {
+        return targets[offsets[vertex] + index];
+    }
+    
+    @Override
+    public long getNeighborCost(int vertex, int index) {
+        return costs[offsets[vertex] + index];
+    }
+    
+    @Override
+    public long getArcStart(int vertex) {
+        return offsets[vertex];
+    }
+    
+    @Override
+    public long getArcEnd(int vertex) {
+        return offsets[vertex + 1];
+    }
+    
+    @Override
+    public int getTarget(long arc) {
+        return targets[(int) arc];
+    }
+    
+    @Override
+    public long getCost(long arc) {
+        return costs[(int) arc];
+    }
+    
+    @Override
+    public void forEachNeighbor(int vertex, IntConsumer action) {
+        
+        for (int arc = offsets[vertex]; arc < offsets[vertex + 1]; arc++) {
+            action.accept(targets[arc]);
+        }
+    }
+    
+    @Override
+    public void forEachArc(int vertex, IntIntLongConsumer action) {
+        
+        for (int arc = offsets[vertex]; arc < offsets[vertex + 1]; arc++) {
+            action.accept(vertex, targets[arc], costs[arc]);
+        }
+    }
+    
+    /**
+     * Returns the vertex the arc leaves, by binary search on the offsets.
+     * 
+     * @param arc
+     * @return 
+     */
+    public int getSource(long arc) {
+        
+        if (arc < 0 || arc >= targets.length) {
+            throw new IndexOutOfBoundsException("Arc: " + arc);
+        }
+        
+        // last vertex whose first arc is at or before the given arc
+        int low = 0;
+        int high = size() - 1;
+        
+        while (low < high) {
+            
+            int mid = (low + high + 1) >>> 1;
+            
+            if (offsets[mid] <= arc) {
+                low = mid;
+                
+            } else {
+                high = mid - 1;
+            }
+        }
+        
+        return low;
+    }
+    
+    @Override
+    public String toString() {
+        
+        StringBuilder builder = new StringBuilder("CsrGraph: ");
+        builder.append(size());
+        builder.append(" vertices, ");
+        builder.append(edgeCount);
+        builder.append(directed ? " directed" : " undirected");
+        builder.append(" edges");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Array of longs stored in direct buffers, outside the Java heap, and 
+ * indexed by longs. Like {@link DirectIntArray}, an array created empty 
+ * grows by {@link #add(long)} without copying.
+ *
+ * @author Marcio Fonseca
+ */
+final class DirectLongArray {
+    
+    private static final int SHIFT = DirectIntArray.SHIFT;
+    private static final long MASK = (1L << SHIFT) - 1;
+    
+    private LongBuffer[] chunks;
+    private long length;
+    
+    DirectLongArray() {
+        this(0);
+    }
+    
+    /**
+     * Creates a zero-filled array. The last chunk is trimmed to the length,
+     * so the array cannot grow.
+     * 
+     * @param length 
+     */
+    DirectLongArray(long length) {
+        
+        chunks = new LongBuffer[(int) ((length + MASK) >>> SHIFT)];
+        
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << SHIFT;
+            chunks[i] = allocate((int) Math.min(1L << SHIFT, length - start));
+        }
+        
+        this.length = length;
+    }
+    
+    private static LongBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size * Long.BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+    
+    long length() {
+        return length;
+    }
+    
+    long get(long index) {
+        return chunks[(int) (index >>> SHIFT)].get((int) (index & MASK));
+    }
+    
+    void set(long index, long value) {
+        chunks[(int) (index >>> SHIFT)].put((int) (index & MASK), value);
+    }
+    
+    void add(long value) {
+        
+        int chunk = (int) (length >>> SHIFT);
+        
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(2 * chunks.length, 1));
+        }
+        
+        if (chunks[chunk] == null) {
+            chunks[chunk] = allocate(1 << SHIFT);
+        }
+        
+        chunks[chunk].put((int) (length & MASK), value);
+        length++;
+    }
+}
@@ -26,8 +26,9 @@ package com.anywarelabs.algorithms.datastructures;
 
 import com.anywarelabs.algorithms.datastructures.DirectedGraph.DirectedEdge;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.function.IntConsumer;
 
 /**
  *
@@ -36,28 +37,28 @@ import java.util.Objects;
 public class DirectedGraph extends Graph<DirectedEdge> {
 
     public class DirectedEdge extends Graph.Edge {
-        private Integer source;
-        private Integer target;
+        private int source;
+        private int target;
         
-        public DirectedEdge(Integer source, Integer target, Integer cost) {
+        public DirectedEdge(int source, int target, long cost) {
             this.source = source;
             this.target = target;
             this.cost = cost;
         }
 
-        public Integer getSource() {
+        public int getSource() {
             return source;
         }
 
-        public Integer getTarget() {
+        public int getTarget() {
             return target;
         }
 
-        public void setSource(Integer source) {
+        private void setSource(int source) {
             this.source = source;
         }
 
-        public void setTarget(Integer target) {
+        private void setTarget(int target) {
             this.target = target;
         }
         
@@ -82,44 +83,38 @@ public class DirectedGraph extends Graph<DirectedEdge> {
             }
             
             final DirectedEdge other = (DirectedEdge) obj;
-            
-            if (!Objects.equals(this.source, other.source)) {
-                return false;
-            }
-            
-            if (!Objects.equals(this.target, other.target)) {
-                return false;
-            }
-            
-            return Objects.equals(this.cost, other.cost);
+            return source == other.source && target == other.target 
+                    && cost == other.cost;
         }
         
         @Override
         public int hashCode() {
             int hash = 7;
-            hash = 97 * hash + Objects.hashCode(this.source);
-            hash = 97 * hash + Objects.hashCode(this.target);
-            hash = 97 * hash + Objects.hashCode(this.cost);
+            hash = 97 * hash + source;
+            hash = 97 * hash + target;
+            hash = 97 * hash + Long.hashCode(cost);
             return hash;
         }
 
         @Override
         public boolean containsVertex(int label) {
-            
-            if (source != null && source.equals(label)) {
-                return true;
-            
-            } else if (target != null && target.equals(label)) {
-                return true;
-            }
-            
-            return false;
+            return source == label || target == label;
         }
 
         @Override
         public DirectedEdge getReverse() {
             return new DirectedEdge(target, source, cost);
         }
+        
+        @Override
+        int first() {
+            return source;
+        }
+        
+        @Override
+        int second() {
+            return target;
+        }
     }
     
     public DirectedGraph() {
@@ -131,84 +126,47 @@ public class DirectedGraph extends Graph<DirectedEdge> {
     }
     
     @Override
-    public final void addEdge(DirectedEdge edge) {
-        
-        if (totalEdgeCost == null) {
-            totalEdgeCost = 0;
-        }
-        
-        if (edges == null) {
-            edges = new ArrayList<>();
-        }
-        
-        if (edges.add(edge)) {
-            totalEdgeCost += edge.getCost();
-        }
-        
-        Integer source = edge.getSource();
-        Vertex vertex = getVertex(source);
-        
-        if (vertex == null) {
-            vertex = new Vertex();
-            addVertex(source, vertex);
-        }
-        
-        vertex.addEdge(edge);
-        
-        Integer target = edge.getTarget();
-        vertex = getVertex(target);
-        
-        if (vertex == null) {
-            vertex = new Vertex();
-            addVertex(target, vertex);
-        }
-    }
-    
-    @Override
-    public final boolean removeEdge(DirectedEdge edge) {
-        
-        //System.out.printf("Removing edge %s\n", edge.toString());
-        boolean removed = false;
-        
-        if (edges != null) {
-           removed = edges.remove(edge);
-        }
-        
-        if (removed) {
-            Vertex vEither = getVertex(edge.getSource());
-            vEither.removeEdge(edge);
-            
-            totalEdgeCost -= edge.getCost();
-        }
-        
-        //System.out.printf("Removed edge %s (%b)\n", edge.toString(), removed);
-        return removed;
+    public boolean isDirected() {
+        return true;
     }
     
+    /**
+     * Merges the target of the edge into its source. Copies of the edge and 
+     * of its reverse with the same cost are removed, edges leaving the 
+     * target are moved to the source, and the other edges entering the 
+     * target are removed with it. Takes O(degree) time.
+     * 
+     * @param edge 
+     */
     @Override
     public final void contractEdge(DirectedEdge edge) {
         
-        //System.out.println("======================");
-        //System.out.println("Vertex count: " + getVertexCount() + " || " + getEdges().size());
         while(removeEdge(edge)){} // we may have several parallel edges
         DirectedEdge inverseEdge = edge.getReverse();
         while(removeEdge(inverseEdge)){}
         
-        Vertex target = getVertex(edge.getTarget());
+        int source = edge.getSource();
+        int target = edge.getTarget();
         
-        for (DirectedEdge e: target.getEdges()) {
+        if (source == target) {
+            return;
+        }
+        
+        Vertex vTarget = getVertex(target);
+        
+        for (DirectedEdge e: new ArrayList<>(vTarget.getEdges())) {
             
-            DirectedEdge newEdge = new DirectedEdge(edge.getSource(), e.getTarget(), e.getCost());
-            //System.out.printf("Adding edge %s\n", newEdge.toString());
-            addEdge(newEdge);
+            // self loops of the target are removed with it
+            if (e.getTarget() != target) {
+                addEdge(new DirectedEdge(source, e.getTarget(), e.getCost()));
+            }
         }
         
-        //System.out.printf("Removing vertex %d\n", other+1);
-        removeVertex(edge.getTarget());
+        removeVertex(target);
     }
     
     @Override
-    public DirectedEdge createEdge(Integer x, Integer y, Integer cost) {
+    public DirectedEdge createEdge(int x, int y, long cost) {
         return new DirectedEdge(x, y, cost);
     }
     
@@ -225,16 +183,97 @@ public class DirectedGraph extends Graph<DirectedEdge> {
         return connected;
     }
     
+    /**
+     * Returns a read-only view of this graph with every edge reversed. The 
+     * view is backed by the incoming lists that the graph keeps for each 
+     * vertex, so it takes O(1) time to create, never modifies the graph, and
+     * reflects later changes to it.
+     * 
+     * @return 
+     */
+    public TraversableGraph getTransposeView() {
+        return new TransposeView();
+    }
+    
+    /**
+     * Reverses the edge in place, in O(1) time if it belongs to this graph.
+     * 
+     * @param edge 
+     */
     public void reverseEdge(DirectedEdge edge) {
         
-        Vertex sourceVertex = getVertex(edge.getSource());
-        sourceVertex.removeEdge(edge);
+        DirectedEdge stored = find(edge);
         
-        Vertex targetVertex = getVertex(edge.getTarget());
-        targetVertex.addEdge(edge);
+        if (stored == null) {
+            return;
+        }
+        
+        unlink(stored);
+        
+        int source = stored.getSource();
+        stored.setSource(stored.getTarget());
+        stored.setTarget(source);
+        
+        link(stored);
+    }
+    
+    /**
+     * Adjacency of the transpose, read from the incoming lists.
+     */
+    private final class TransposeView implements TraversableGraph {
+        
+        private List<DirectedEdge> incoming(int vertex) {
+            
+            Vertex v = getVertex(vertex);
+            return v == null || v.incoming == null 
+                    ? Collections.<DirectedEdge>emptyList() : v.incoming;
+        }
+        
+        @Override
+        public int size() {
+            return DirectedGraph.this.size();
+        }
+        
+        @Override
+        public boolean isDirected() {
+            return true;
+        }
         
-        Integer source = edge.getSource();
-        edge.setSource(edge.getTarget());
-        edge.setTarget(source);
+        @Override
+        public int getDegree(int vertex) {
+            return incoming(vertex).size();
+        }
+        
+        @Override
+        public int getNeighbor(int vertex, int index) {
+            return incoming(vertex).get(index).getSource();
+        }
+        
+        @Override
+        public long getNeighborCost(int vertex, int index) {
+            return incoming(vertex).get(index).getCost();
+        }
+        
+        @Override
+        public void forEachNeighbor(int vertex, IntConsumer action) {
+            
+            List<DirectedEdge> list = incoming(vertex);
+            
+            for (int i = 0; i < list.size(); i++) {
+                action.accept(list.get(i).getSource());
+            }
+        }
+        
+        @Override
+        public void forEachArc(int vertex, IntIntLongConsumer action) {
+            
+            List<DirectedEdge> list = incoming(vertex);
+            
+            for (int i = 0; i < list.size(); i++) {
+                
+                DirectedEdge e = list.get(i);
+                action.accept(vertex, e.getSource(), e.getCost());
+            }
+        }
     }
 }
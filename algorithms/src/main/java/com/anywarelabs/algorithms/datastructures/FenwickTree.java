@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+/**
+ * Fenwick tree (binary indexed tree) of long values. Both point updates and
+ * prefix sums take O(log n) time.
+ * 
+ * @author Marcio Fonseca
+ */
+public class FenwickTree {
+    
+    private final long[] tree;
+
+    public FenwickTree(int size) {
+        tree = new long[size + 1];
+    }
+    
+    /**
+     * Adds delta to the element at the given index.
+     * 
+     * @param index zero-based index
+     * @param delta 
+     */
+    public void add(int index, long delta) {
+        
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+    
+    /**
+     * Returns the sum of the elements in [0, index]. Returns zero for 
+     * negative indices.
+     * 
+     * @param index zero-based index
+     * @return 
+     */
+    public long prefixSum(int index) {
+        
+        long sum = 0;
+        
+        for (int i = Math.min(index + 1, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        
+        return sum;
+    }
+    
+    public int size() {
+        return tree.length - 1;
+    }
+}
@@ -26,45 +26,76 @@ package com.anywarelabs.algorithms.datastructures;
 
 import com.anywarelabs.algorithms.datastructures.Graph.Edge;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
 
 /**
  *
  * @author marciofonseca
  * @param <EdgeType>
  */
-public abstract class Graph<EdgeType extends Edge> implements Comparable<Graph> {
+public abstract class Graph<EdgeType extends Edge> implements Comparable<Graph>, 
+        TraversableGraph {
     
     public class Vertex {
         List<EdgeType> edges;
-        
+        // edges whose target is this vertex, in directed graphs only
+        List<EdgeType> incoming;
+
+        /**
+         * @param edge
+         * @deprecated edges are indexed by the graph that stores them, so 
+         * they must be added with {@link Graph#addEdge}, which this 
+         * method calls.
+         */
+        @Deprecated
         public void addEdge(EdgeType edge) {
-            
-            if (edges == null) {
-                edges = new ArrayList<>();
-            }
-            
-            edges.add(edge);
+            Graph.this.addEdge(edge);
         }
         
+        /**
+         * @param edge
+         * @return true if an edge was removed.
+         * @deprecated edges are indexed by the graph that stores them, so 
+         * they must be removed with {@link Graph#removeEdge}, which 
+         * this method calls.
+         */
+        @Deprecated
         public boolean removeEdge(EdgeType edge) {
-            
-            if (edges != null) {
-                return edges.remove(edge);
-            }
-            
-            return false;
+            return Graph.this.removeEdge(edge);
         }
-
+        
+        /**
+         * Returns a read-only view of the edges of this vertex. Edges are 
+         * added and removed through the graph, which keeps the positions of
+         * each edge in its vertex lists.
+         * 
+         * @return 
+         */
         public List<EdgeType> getEdges() {
+            return Collections.unmodifiableList(edges());
+        }
+        
+        List<EdgeType> edges() {
             
             if (edges == null) {
                 edges = new ArrayList<>();
             }
-            //return new ArrayList<>(edges);
+            
             return edges;
         }
         
+        List<EdgeType> getIncoming() {
+            
+            if (incoming == null) {
+                incoming = new ArrayList<>();
+            }
+            
+            return incoming;
+        }
+        
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder("Vertex: \n");
@@ -79,33 +110,49 @@ public abstract class Graph<EdgeType extends Edge> implements Comparable<Graph>
     }
     
     public abstract class Edge implements Comparable<EdgeType> {
-        protected Integer cost;
+        protected long cost;
+        
+        // handles into the graph that stores this edge: its position in the
+        // edge list and in the lists of its first and second vertices
+        Graph<?> owner;
+        int index = -1;
+        int firstSlot = -1;
+        int secondSlot = -1;
 
-        public Integer getCost() {
+        public long getCost() {
             return cost;
         }
 
-        public void setCost(Integer cost) {
+        /**
+         * Sets the cost, updating the total cost of the graph that stores 
+         * this edge.
+         * 
+         * @param cost 
+         */
+        public void setCost(long cost) {
+            
+            if (owner != null) {
+                owner.totalEdgeCost += cost - this.cost;
+            }
+            
             this.cost = cost;
         }
         
         public abstract boolean containsVertex(int label);
         public abstract EdgeType getReverse();
         
+        abstract int first();
+        abstract int second();
+        
         @Override
         public int compareTo(EdgeType that) {
-            
-            if (this.cost == null) {
-                return 0;
-            }
-            
-            return this.cost.compareTo(that.cost);
+            return Long.compare(this.cost, that.cost);
         }
     }
     
     List<Vertex> vertices;
     List<EdgeType> edges;
-    Integer totalEdgeCost;
+    long totalEdgeCost;
     int vertexCount = 0;
     
     public Graph() {
@@ -120,51 +167,247 @@ public abstract class Graph<EdgeType extends Edge> implements Comparable<Graph>
         }
     }
     
-    public abstract void addEdge(EdgeType edge);
-    
-    public abstract EdgeType createEdge(Integer x, Integer y, Integer cost);
+    public abstract EdgeType createEdge(int x, int y, long cost);
     
     public abstract void contractEdge(EdgeType edge);
     
-    public abstract boolean removeEdge(EdgeType edge);
-    
     public abstract List<Integer> getConnectedVertices(int vertex);
     
+    /**
+     * Returns true if each edge is stored only in the list of its first 
+     * vertex, and in the incoming list of its second vertex.
+     * 
+     * @return 
+     */
+    public abstract boolean isDirected();
+    
+    /**
+     * Adds an edge, creating its vertices if needed. An edge that already 
+     * belongs to a graph is copied, so edges can be shared between graphs 
+     * through {@link #getEdges()}.
+     * 
+     * @param edge 
+     */
+    public void addEdge(EdgeType edge) {
+        
+        if (edge.owner != null) {
+            edge = createEdge(edge.first(), edge.second(), edge.getCost());
+        }
+        
+        if (edges == null) {
+            edges = new ArrayList<>();
+        }
+        
+        setOwner(edge, this);
+        edge.index = edges.size();
+        edges.add(edge);
+        totalEdgeCost += edge.getCost();
+        
+        link(edge);
+    }
+    
+    /**
+     * Adds an edge between vertices given by sparse 64-bit ids, which are 
+     * mapped to dense labels by the dictionary, so the graph only holds the
+     * vertices that exist.
+     * 
+     * @param ids
+     * @param x
+     * @param y
+     * @param cost
+     * @return the added edge
+     */
+    public EdgeType addEdge(VertexIdMap ids, long x, long y, long cost) {
+        
+        EdgeType edge = createEdge(ids.getOrAdd(x), ids.getOrAdd(y), cost);
+        addEdge(edge);
+        return edge;
+    }
+    
+    /**
+     * Removes the edge in O(1) time if it belongs to this graph. Otherwise, 
+     * an equal edge is searched in the edges of its first vertex, in 
+     * O(degree) time.
+     * 
+     * @param edge
+     * @return true if an edge was removed.
+     */
+    public boolean removeEdge(EdgeType edge) {
+        
+        EdgeType stored = find(edge);
+        
+        if (stored == null) {
+            return false;
+        }
+        
+        delete(stored);
+        return true;
+    }
+    
+    /**
+     * Returns the edge stored in this graph that is equal to the given one, 
+     * or null.
+     */
+    final EdgeType find(EdgeType edge) {
+        
+        if (edge.owner == this) {
+            return edge;
+        }
+        
+        Vertex vertex = getVertex(edge.first());
+        
+        if (vertex == null || vertex.edges == null) {
+            return null;
+        }
+        
+        for (EdgeType e : vertex.edges) {
+            
+            if (e.equals(edge)) {
+                return e;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Removes an edge of this graph by moving the last edge into its slot.
+     */
+    final void delete(EdgeType edge) {
+        
+        int last = edges.size() - 1;
+        EdgeType moved = edges.remove(last);
+        
+        if (edge.index < last) {
+            edges.set(edge.index, moved);
+            moved.index = edge.index;
+        }
+        
+        unlink(edge);
+        totalEdgeCost -= edge.getCost();
+        
+        setOwner(edge, null);
+        edge.index = -1;
+    }
+    
+    /**
+     * Sets the graph that stores the edge. EdgeType is bounded by the raw 
+     * Edge type, so the owner field is only reachable as a raw member.
+     */
+    @SuppressWarnings("unchecked")
+    private void setOwner(EdgeType edge, Graph<?> owner) {
+        edge.owner = owner;
+    }
+    
+    /**
+     * Appends the edge to the lists of its vertices, creating them if needed.
+     */
+    final void link(EdgeType edge) {
+        
+        Vertex first = getOrAddVertex(edge.first());
+        edge.firstSlot = first.edges().size();
+        first.edges.add(edge);
+        
+        Vertex second = getOrAddVertex(edge.second());
+        List<EdgeType> list = isDirected() ? second.getIncoming() 
+                : second.edges();
+        edge.secondSlot = list.size();
+        list.add(edge);
+    }
+    
+    /**
+     * Removes the edge from the lists of its vertices.
+     */
+    final void unlink(EdgeType edge) {
+        
+        int first = edge.first();
+        int second = edge.second();
+        
+        // the slots are read one at a time, since removing the first copy of
+        // a self loop may move the second one
+        unlink(getVertex(first).edges, first, edge.firstSlot, false);
+        
+        if (isDirected()) {
+            unlink(getVertex(second).incoming, second, edge.secondSlot, true);
+            
+        } else {
+            unlink(getVertex(second).edges, second, edge.secondSlot, false);
+        }
+        
+        edge.firstSlot = -1;
+        edge.secondSlot = -1;
+    }
+    
+    private void unlink(List<EdgeType> list, int label, int slot, 
+            boolean incoming) {
+        
+        int last = list.size() - 1;
+        EdgeType moved = list.remove(last);
+        
+        if (slot == last) {
+            return;
+        }
+        
+        list.set(slot, moved);
+        
+        if (!incoming && moved.first() == label && moved.firstSlot == last) {
+            moved.firstSlot = slot;
+            
+        } else {
+            moved.secondSlot = slot;
+        }
+    }
+    
+    private Vertex getOrAddVertex(int label) {
+        
+        Vertex vertex = getVertex(label);
+        
+        if (vertex == null) {
+            vertex = new Vertex();
+            addVertex(label, vertex);
+        }
+        
+        return vertex;
+    }
+    
     public final void addVertex(Integer label, Vertex vertex) {
         
         int size = vertices().size();
         if (label >= size) {
-            for (int i=0; i<=(label-size); i++) {
-                vertices().add(null);
-            }
+            vertices().addAll(Collections.nCopies(label - size + 1, null));
         }
         
         vertexCount++;
         vertices().set(label, vertex);
     }
     
+    /**
+     * Removes the vertex and its edges in O(degree) time.
+     * 
+     * @param label 
+     */
     public final void removeVertex(int label) {
         
-        if (vertices() != null) {
-            
-            List<EdgeType> edgesToRemove =  new ArrayList<>();
-            
-            for (EdgeType e: edges) {
-                
-                if (e.containsVertex(label)) {
-                    edgesToRemove.add(e);
-                }
-            }
+        Vertex vertex = getVertex(label);
+        
+        if (vertex != null) {
             
-            for (EdgeType e: edgesToRemove) {
-                removeEdge(e);
-            }
+            deleteAll(vertex.edges);
+            deleteAll(vertex.incoming);
             
             vertexCount--;
             vertices().set(label, null);
         }
     }
     
+    private void deleteAll(List<EdgeType> list) {
+        
+        // removing from the end never moves the other edges of the list
+        while (list != null && !list.isEmpty()) {
+            delete(list.get(list.size() - 1));
+        }
+    }
+    
     public boolean hasVertex(int vertex) {
         
         if (vertices().size() > vertex) {
@@ -196,6 +439,17 @@ public abstract class Graph<EdgeType extends Edge> implements Comparable<Graph>
         return new ArrayList<>(vertices());
     }
     
+    /**
+     * Returns a read-only view of the vertices, indexed by label, with null 
+     * for missing labels. Unlike {@link #getVertices()}, nothing is copied, 
+     * and changes to the graph show through the view.
+     * 
+     * @return 
+     */
+    public List<Vertex> getVertexView() {
+        return Collections.unmodifiableList(vertices());
+    }
+    
     public int size() {
         
         /*int count = 0;
@@ -219,7 +473,120 @@ public abstract class Graph<EdgeType extends Edge> implements Comparable<Graph>
         return new ArrayList<>();
     }
     
-    public Integer getTotalEdgeCost() {
+    /**
+     * Returns a read-only view of the edges. Unlike {@link #getEdges()}, 
+     * nothing is copied, and changes to the graph show through the view.
+     * 
+     * @return 
+     */
+    public List<EdgeType> getEdgeView() {
+        return Collections.unmodifiableList(edges());
+    }
+    
+    /**
+     * Returns a spliterator over the edges that splits the backing list by 
+     * index, for parallel streams. It fails fast if edges are added or 
+     * removed during the traversal.
+     * 
+     * @return 
+     */
+    public Spliterator<EdgeType> edgeSpliterator() {
+        return edges().spliterator();
+    }
+    
+    /**
+     * Performs the action for the endpoints and cost of each edge, in the
+     * order of {@link #getEdgeView()}, without iterators or boxed results.
+     * 
+     * @param action 
+     */
+    public void forEachEdge(IntIntLongConsumer action) {
+        
+        if (edges == null) {
+            return;
+        }
+        
+        for (int i = 0; i < edges.size(); i++) {
+            
+            EdgeType e = edges.get(i);
+            action.accept(e.first(), e.second(), e.getCost());
+        }
+    }
+    
+    @Override
+    public int getDegree(int vertex) {
+        
+        Vertex v = getVertex(vertex);
+        return v == null || v.edges == null ? 0 : v.edges.size();
+    }
+    
+    @Override
+    public int getNeighbor(int vertex, int index) {
+        
+        EdgeType e = getVertex(vertex).edges.get(index);
+        return e.first() == vertex ? e.second() : e.first();
+    }
+    
+    @Override
+    public long getNeighborCost(int vertex, int index) {
+        return getVertex(vertex).edges.get(index).getCost();
+    }
+    
+    /**
+     * Performs the action for each vertex connected to the given one, in the
+     * same order as {@link #getConnectedVertices(int)}, without building a 
+     * list.
+     * 
+     * @param vertex
+     * @param action 
+     */
+    @Override
+    public void forEachNeighbor(int vertex, IntConsumer action) {
+        
+        Vertex v = getVertex(vertex);
+        
+        if (v == null || v.edges == null) {
+            return;
+        }
+        
+        List<EdgeType> list = v.edges;
+        
+        for (int i = 0; i < list.size(); i++) {
+            
+            EdgeType e = list.get(i);
+            action.accept(e.first() == vertex ? e.second() : e.first());
+        }
+    }
+    
+    @Override
+    public void forEachArc(int vertex, IntIntLongConsumer action) {
+        
+        Vertex v = getVertex(vertex);
+        
+        if (v == null || v.edges == null) {
+            return;
+        }
+        
+        List<EdgeType> list = v.edges;
+        
+        for (int i = 0; i < list.size(); i++) {
+            
+            EdgeType e = list.get(i);
+            action.accept(vertex, e.first() == vertex ? e.second() : e.first(),
+                    e.getCost());
+        }
+    }
+    
+    private List<EdgeType> edges() {
+        
+        if (edges == null) {
+            edges = new ArrayList<>();
+        }
+        
+        return edges;
+    }
+    
+    public long getTotalEdgeCost() {
         return totalEdgeCost;
     }
     
@@ -0,0 +1,763 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loader for the text graph formats of the resources. Files are parsed 
+ * directly from their bytes, without a String per line or token, in chunks
+ * of whole lines that are parsed in parallel and concatenated in file 
+ * order. Files are memory-mapped in a few large regions that end at line 
+ * boundaries, and chunks are slices of these mappings; streams are read 
+ * into memory first.
+ * 
+ * <p>Vertex labels are one-based in the files and zero-based in the graphs.
+ * The methods that take a {@link VertexIdMap} read sparse 64-bit vertex ids
+ * instead, which are mapped to dense labels in file order after the chunks
+ * are parsed. Tokens are separated by spaces, tabs or commas, and blank 
+ * lines are ignored.
+ *
+ * @author Marcio Fonseca
+ */
+public final class GraphReader {
+    
+    public enum Format {
+        
+        /**
+         * Undirected graph, one line per vertex: "v w1 w2 ...". An edge may
+         * be listed by either or both of its vertices, and is read once, in
+         * the direction in which it first appears.
+         */
+        ADJACENCY_LIST,
+        
+        /**
+         * One edge per line: "v w" or "v w cost". Edges without a cost cost
+         * 1.
+         */
+        EDGE_LIST,
+        
+        /**
+         * Like {@link #EDGE_LIST}, after a first line that starts with the 
+         * number of vertices.
+         */
+        EDGE_LIST_WITH_HEADER,
+        
+        /**
+         * One line per vertex: "v w1,cost1 w2,cost2 ...".
+         */
+        WEIGHTED_ADJACENCY_LIST,
+        
+        /**
+         * Clustering nodes given as bits: a first line "count bits", then 
+         * one line of space-separated bits per node. Read with 
+         * {@link GraphReader#readBitStrings(InputStream)}.
+         */
+        BIT_STRINGS
+    }
+    
+    /**
+     * Default number of bytes parsed by a single task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    
+    // bytes mapped at once; chunks never cross regions
+    private static final int REGION_SIZE = 1 << 30;
+    
+    private final Format format;
+    private final int chunkSize;
+    
+    public GraphReader(Format format) {
+        this(format, DEFAULT_CHUNK_SIZE);
+    }
+    
+    /**
+     * @param format
+     * @param chunkSize approximate number of bytes parsed by a single task
+     */
+    public GraphReader(Format format, int chunkSize) {
+        
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " 
+                    + chunkSize);
+        }
+        
+        this.format = format;
+        this.chunkSize = Math.min(chunkSize, REGION_SIZE);
+    }
+    
+    public CsrGraph readCsrGraph(Path file, boolean directed) 
+            throws IOException {
+        return read(file, null).toCsrGraph(directed);
+    }
+    
+    public CsrGraph readCsrGraph(InputStream in, boolean directed) 
+            throws IOException {
+        return read(in, null).toCsrGraph(directed);
+    }
+    
+    public DirectedGraph readDirectedGraph(Path file) throws IOException {
+        return read(file, null).toDirectedGraph();
+    }
+    
+    public DirectedGraph readDirectedGraph(InputStream in) 
+            throws IOException {
+        return read(in, null).toDirectedGraph();
+    }
+    
+    public UndirectedGraph readUndirectedGraph(Path file) 
+            throws IOException {
+        return read(file, null).toUndirectedGraph();
+    }
+    
+    public UndirectedGraph readUndirectedGraph(InputStream in) 
+            throws IOException {
+        return read(in, null).toUndirectedGraph();
+    }
+    
+    /**
+     * Reads a graph whose vertices are given by sparse 64-bit ids. New ids 
+     * are added to the map, which may already hold the ids of a previous 
+     * load, and the graph has a vertex for each id in the map. The vertex 
+     * count of a header is ignored.
+     * 
+     * @param file
+     * @param directed
+     * @param ids
+     * @return
+     * @throws IOException 
+     */
+    public CsrGraph readCsrGraph(Path file, boolean directed, 
+            VertexIdMap ids) throws IOException {
+        return read(file, ids).toCsrGraph(directed);
+    }
+    
+    public CsrGraph readCsrGraph(InputStream in, boolean directed, 
+            VertexIdMap ids) throws IOException {
+        return read(in, ids).toCsrGraph(directed);
+    }
+    
+    public DirectedGraph readDirectedGraph(Path file, VertexIdMap ids) 
+            throws IOException {
+        return read(file, ids).toDirectedGraph();
+    }
+    
+    public DirectedGraph readDirectedGraph(InputStream in, VertexIdMap ids)
+            throws IOException {
+        return read(in, ids).toDirectedGraph();
+    }
+    
+    public UndirectedGraph readUndirectedGraph(Path file, VertexIdMap ids) 
+            throws IOException {
+        return read(file, ids).toUndirectedGraph();
+    }
+    
+    public UndirectedGraph readUndirectedGraph(InputStream in, 
+            VertexIdMap ids) throws IOException {
+        return read(in, ids).toUndirectedGraph();
+    }
+    
+    /**
+     * Reads nodes in the {@link Format#BIT_STRINGS} format. The first bit 
+     * of a line is the lowest bit of its node.
+     * 
+     * @param in
+     * @return one node per line, in file order
+     * @throws IOException 
+     */
+    public static int[] readBitStrings(InputStream in) throws IOException {
+        
+        Chunk result = new GraphReader(Format.BIT_STRINGS).read(in, null);
+        return Arrays.copyOf(result.sources.values, result.sources.size);
+    }
+    
+    private Chunk read(Path file, VertexIdMap ids) throws IOException {
+        
+        try (FileChannel channel = FileChannel.open(file, 
+                StandardOpenOption.READ)) {
+            
+            long size = channel.size();
+            List<ByteBuffer> chunks = new ArrayList<>();
+            int[] header = null;
+            long start = 0;
+            
+            if (hasHeader()) {
+                start = nextLineStart(channel, 1, size);
+                header = parseHeader(channel.map(MapMode.READ_ONLY, 0, start));
+            }
+            
+            while (start < size) {
+                
+                long end = nextLineStart(channel, 
+                        Math.min(start + REGION_SIZE, size), size);
+                split(channel.map(MapMode.READ_ONLY, start, end - start), 
+                        chunks);
+                start = end;
+            }
+            
+            return parse(chunks, header, ids);
+        }
+    }
+    
+    private Chunk read(InputStream in, VertexIdMap ids) throws IOException {
+        
+        ByteBuffer buffer = ByteBuffer.wrap(readFully(in));
+        List<ByteBuffer> chunks = new ArrayList<>();
+        int[] header = null;
+        
+        if (hasHeader()) {
+            
+            ByteBuffer line = buffer.duplicate();
+            line.limit(nextLineStart(buffer, 1));
+            header = parseHeader(line);
+            buffer.position(line.limit());
+        }
+        
+        split(buffer, chunks);
+        return parse(chunks, header, ids);
+    }
+    
+    /**
+     * Splits the remaining bytes of the buffer in chunks of whole lines.
+     */
+    private void split(ByteBuffer buffer, List<ByteBuffer> chunks) {
+        
+        int start = buffer.position();
+        int limit = buffer.limit();
+        
+        while (start < limit) {
+            
+            int end = nextLineStart(buffer, 
+                    (int) Math.min((long) start + chunkSize, limit));
+            
+            ByteBuffer chunk = buffer.duplicate();
+            chunk.limit(end);
+            chunk.position(start);
+            chunks.add(chunk);
+            start = end;
+        }
+    }
+    
+    private boolean hasHeader() {
+        return format == Format.EDGE_LIST_WITH_HEADER 
+                || format == Format.BIT_STRINGS;
+    }
+    
+    private int[] parseHeader(ByteBuffer line) {
+        
+        IntArray values = new IntArray();
+        
+        parse(line, (tokens, count) -> {
+            
+            for (int i = 0; i < count; i++) {
+                values.add(toInt(tokens[i]));
+            }
+        });
+        
+        if (values.size == 0) {
+            throw new IllegalArgumentException("Missing header line");
+        }
+        
+        return Arrays.copyOf(values.values, values.size);
+    }
+    
+    /**
+     * Returns the first line start at or after the position: the position 
+     * itself if it follows a line feed, or the position after the next line 
+     * feed.
+     */
+    private static long nextLineStart(FileChannel channel, long position, 
+            long size) throws IOException {
+        
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        long offset = position - 1;
+        
+        while (offset < size) {
+            
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            
+            for (int i = 0; i < read; i++) {
+                
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            
+            offset += Math.max(read, 0);
+            
+            if (read <= 0) {
+                break;
+            }
+        }
+        
+        return size;
+    }
+    
+    private static int nextLineStart(ByteBuffer buffer, int position) {
+        
+        for (int i = position - 1; i < buffer.limit(); i++) {
+            
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        
+        return buffer.limit();
+    }
+    
+    private static byte[] readFully(InputStream in) throws IOException {
+        
+        byte[] bytes = new byte[1 << 16];
+        int size = 0;
+        int read;
+        
+        while ((read = in.read(bytes, size, bytes.length - size)) >= 0) {
+            
+            size += read;
+            
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size << 1);
+            }
+        }
+        
+        return Arrays.copyOf(bytes, size);
+    }
+    
+    private Chunk parse(List<ByteBuffer> chunks, int[] header, 
+            VertexIdMap ids) {
+        
+        boolean sparse = ids != null;
+        Chunk[] parsed = chunks.parallelStream()
+                .map(chunk -> parse(chunk, sparse))
+                .toArray(Chunk[]::new);
+        
+        Chunk result = new Chunk(sparse);
+        
+        for (Chunk chunk : parsed) {
+            result.append(chunk);
+        }
+        
+        if (sparse) {
+            // sequentially, so that labels follow the file order
+            result.map(ids);
+            
+        } else if (header != null && format == Format.EDGE_LIST_WITH_HEADER) {
+            
+            if (header[0] < result.vertexCount) {
+                throw new IllegalArgumentException("Vertex label out of "
+                        + "range: " + result.vertexCount);
+            }
+            
+            result.vertexCount = header[0];
+            result.hasVertexCount = true;
+        }
+        
+        if (format == Format.ADJACENCY_LIST) {
+            result.removeDuplicatePairs();
+        }
+        
+        return result;
+    }
+    
+    private Chunk parse(ByteBuffer buffer, boolean sparse) {
+        
+        Chunk chunk = new Chunk(sparse);
+        
+        switch (format) {
+            
+            case ADJACENCY_LIST:
+                parse(buffer, (tokens, count) -> {
+                    
+                    long v = chunk.label(tokens[0]);
+                    
+                    // duplicates are removed once every chunk is parsed
+                    for (int i = 1; i < count; i++) {
+                        chunk.add(v, chunk.label(tokens[i]), 1);
+                    }
+                });
+                break;
+                
+            case EDGE_LIST:
+            case EDGE_LIST_WITH_HEADER:
+                parse(buffer, (tokens, count) -> {
+                    
+                    if (count != 2 && count != 3) {
+                        throw new IllegalArgumentException(
+                                "Expected an edge, found " + count 
+                                + " values");
+                    }
+                    
+                    chunk.add(chunk.label(tokens[0]), chunk.label(tokens[1]), 
+                            count == 3 ? tokens[2] : 1);
+                });
+                break;
+                
+            case WEIGHTED_ADJACENCY_LIST:
+                parse(buffer, (tokens, count) -> {
+                    
+                    if (count % 2 == 0) {
+                        throw new IllegalArgumentException(
+                                "Edge without cost for vertex " + tokens[0]);
+                    }
+                    
+                    long v = chunk.label(tokens[0]);
+                    
+                    for (int i = 1; i < count; i += 2) {
+                        chunk.add(v, chunk.label(tokens[i]), tokens[i + 1]);
+                    }
+                });
+                break;
+                
+            case BIT_STRINGS:
+                parse(buffer, (tokens, count) -> {
+                    
+                    if (count > Integer.SIZE) {
+                        throw new IllegalArgumentException("Too many bits: " 
+                                + count);
+                    }
+                    
+                    int node = 0;
+                    
+                    for (int i = 0; i < count; i++) {
+                        
+                        if ((tokens[i] & ~1) != 0) {
+                            throw new IllegalArgumentException("Not a bit: " 
+                                    + tokens[i]);
+                        }
+                        
+                        node |= (int) tokens[i] << i;
+                    }
+                    
+                    chunk.sources.add(node);
+                });
+                break;
+        }
+        
+        return chunk;
+    }
+    
+    private interface LineHandler {
+        
+        void accept(long[] tokens, int count);
+    }
+    
+    private static int toInt(long token) {
+        
+        if (token < Integer.MIN_VALUE || token > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Integer out of range: " 
+                    + token);
+        }
+        
+        return (int) token;
+    }
+    
+    /**
+     * Parses the integers of each line of the buffer, from its position to 
+     * its limit, and passes the non-empty lines to the handler.
+     */
+    private static void parse(ByteBuffer buffer, LineHandler handler) {
+        
+        long[] tokens = new long[16];
+        int count = 0;
+        int position = buffer.position();
+        int limit = buffer.limit();
+        
+        while (position < limit) {
+            
+            byte b = buffer.get(position);
+            
+            if (b == '\n') {
+                
+                if (count > 0) {
+                    handler.accept(tokens, count);
+                    count = 0;
+                }
+                
+                position++;
+                
+            } else if (b == ' ' || b == '\t' || b == ',' || b == '\r') {
+                position++;
+                
+            } else {
+                
+                boolean negative = b == '-';
+                
+                if (negative) {
+                    position++;
+                }
+                
+                long value = 0;
+                int digits = 0;
+                
+                while (position < limit) {
+                    
+                    int digit = buffer.get(position) - '0';
+                    
+                    if (digit < 0 || digit > 9) {
+                        break;
+                    }
+                    
+                    if (value > (Long.MAX_VALUE - digit) / 10) {
+                        throw new IllegalArgumentException(
+                                "Integer out of range at byte " + position);
+                    }
+                    
+                    value = value * 10 + digit;
+                    digits++;
+                    position++;
+                }
+                
+                if (negative) {
+                    value = -value;
+                }
+                
+                if (digits == 0) {
+                    throw new IllegalArgumentException(
+                            "Unexpected character at byte " + position);
+                }
+                
+                if (count == tokens.length) {
+                    tokens = Arrays.copyOf(tokens, count << 1);
+                }
+                
+                tokens[count++] = value;
+            }
+        }
+        
+        if (count > 0) {
+            handler.accept(tokens, count);
+        }
+    }
+    
+    /**
+     * Growable array of primitive ints.
+     */
+    private static final class IntArray {
+        
+        int[] values = new int[16];
+        int size;
+        
+        void add(int value) {
+            
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            
+            values[size++] = value;
+        }
+        
+        void add(int[] array, int count) {
+            
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, 
+                        Math.max(size + count, size << 1));
+            }
+            
+            System.arraycopy(array, 0, values, size, count);
+            size += count;
+        }
+    }
+    
+    /**
+     * Growable array of primitive longs.
+     */
+    private static final class LongArray {
+        
+        long[] values = new long[16];
+        int size;
+        
+        void add(long value) {
+            
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            
+            values[size++] = value;
+        }
+        
+        void add(long[] array, int count) {
+            
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, 
+                        Math.max(size + count, size << 1));
+            }
+            
+            System.arraycopy(array, 0, values, size, count);
+            size += count;
+        }
+    }
+    
+    /**
+     * Edges parsed from a chunk, in parallel arrays of zero-based labels. 
+     * When reading sparse ids, the endpoints are kept as ids until they are
+     * mapped to labels.
+     */
+    private static final class Chunk {
+        
+        final IntArray sources = new IntArray();
+        final IntArray targets = new IntArray();
+        final LongArray costs = new LongArray();
+        final LongArray sourceIds;
+        final LongArray targetIds;
+        int vertexCount;
+        boolean hasVertexCount;
+        
+        Chunk(boolean sparse) {
+            sourceIds = sparse ? new LongArray() : null;
+            targetIds = sparse ? new LongArray() : null;
+        }
+        
+        long label(long token) {
+            
+            if (sourceIds != null) {
+                return token;
+            }
+            
+            if (token < 1) {
+                throw new IllegalArgumentException(
+                        "Vertex labels start at 1: " + token);
+            }
+            
+            vertexCount = Math.max(vertexCount, toInt(token));
+            return token - 1;
+        }
+        
+        void add(long source, long target, long cost) {
+            
+            if (sourceIds != null) {
+                sourceIds.add(source);
+                targetIds.add(target);
+                
+            } else {
+                sources.add((int) source);
+                targets.add((int) target);
+            }
+            
+            costs.add(cost);
+        }
+        
+        void append(Chunk chunk) {
+            
+            sources.add(chunk.sources.values, chunk.sources.size);
+            targets.add(chunk.targets.values, chunk.targets.size);
+            costs.add(chunk.costs.values, chunk.costs.size);
+            vertexCount = Math.max(vertexCount, chunk.vertexCount);
+            
+            if (sourceIds != null) {
+                sourceIds.add(chunk.sourceIds.values, chunk.sourceIds.size);
+                targetIds.add(chunk.targetIds.values, chunk.targetIds.size);
+            }
+        }
+        
+        /**
+         * Replaces the ids of the endpoints with their labels, and sizes the
+         * graph to hold every id in the map.
+         */
+        void map(VertexIdMap ids) {
+            
+            for (int i = 0; i < sourceIds.size; i++) {
+                sources.add(ids.getOrAdd(sourceIds.values[i]));
+                targets.add(ids.getOrAdd(targetIds.values[i]));
+            }
+            
+            vertexCount = ids.size();
+            hasVertexCount = true;
+        }
+        
+        /**
+         * Keeps the first edge of each unordered pair of labels, compacting 
+         * the arrays in place.
+         */
+        void removeDuplicatePairs() {
+            
+            VertexIdMap pairs = new VertexIdMap(sources.size);
+            int count = 0;
+            
+            for (int i = 0; i < sources.size; i++) {
+                
+                int v = sources.values[i];
+                int w = targets.values[i];
+                long pair = v < w ? (long) v << 32 | w : (long) w << 32 | v;
+                int size = pairs.size();
+                
+                if (pairs.getOrAdd(pair) == size) {
+                    sources.values[count] = v;
+                    targets.values[count] = w;
+                    costs.values[count] = costs.values[i];
+                    count++;
+                }
+            }
+            
+            sources.size = count;
+            targets.size = count;
+            costs.size = count;
+        }
+        
+        CsrGraph toCsrGraph(boolean directed) {
+            
+            int count = sources.size;
+            return new CsrGraph(vertexCount, 
+                    Arrays.copyOf(sources.values, count),
+                    Arrays.copyOf(targets.values, count), 
+                    Arrays.copyOf(costs.values, count), directed);
+        }
+        
+        DirectedGraph toDirectedGraph() {
+            
+            DirectedGraph g = hasVertexCount 
+                    ? new DirectedGraph(vertexCount) : new DirectedGraph();
+            
+            for (int i = 0; i < sources.size; i++) {
+                g.addEdge(g.createEdge(sources.values[i], targets.values[i], 
+                        costs.values[i]));
+            }
+            
+            return g;
+        }
+        
+        UndirectedGraph toUndirectedGraph() {
+            
+            UndirectedGraph g = hasVertexCount 
+                    ? new UndirectedGraph(vertexCount) : new UndirectedGraph();
+            
+            for (int i = 0; i < sources.size; i++) {
+                g.addEdge(g.createEdge(sources.values[i], targets.values[i], 
+                        costs.values[i]));
+            }
+            
+            return g;
+        }
+    }
+}
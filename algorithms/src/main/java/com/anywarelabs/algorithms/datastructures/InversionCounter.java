@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Online inversion counter. Values are added one at a time or in batches, 
+ * and the number of inversions of the sequence added so far, i.e. the pairs
+ * of values where the greater one was added first, is kept up to date in 
+ * O(log n) time per value.
+ * 
+ * <p>When the possible values are known in advance, {@link #forKeys(int[])}
+ * compresses them to ranks in a {@link FenwickTree}. Otherwise 
+ * {@link #dynamic()} keeps the values in a binary trie over their bits, 
+ * which grows with the distinct values added.
+ *
+ * @author Marcio Fonseca
+ */
+public abstract class InversionCounter {
+    
+    private long inversions;
+    private long count;
+    
+    /**
+     * Creates a counter for values from the given set of keys.
+     * 
+     * @param keys every value that may be added, in any order and with
+     * repetitions
+     * @return 
+     */
+    public static InversionCounter forKeys(int[] keys) {
+        return new CompressedInversionCounter(keys);
+    }
+    
+    /**
+     * Creates a counter for values from the whole int range.
+     * 
+     * @return 
+     */
+    public static InversionCounter dynamic() {
+        return new DynamicInversionCounter();
+    }
+    
+    /**
+     * Adds a value to the end of the sequence.
+     * 
+     * @param value 
+     */
+    public void add(int value) {
+        inversions += insert(value);
+        count++;
+    }
+    
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+    
+    /**
+     * Adds the values in values[from, to) to the end of the sequence.
+     * 
+     * @param values
+     * @param from
+     * @param to exclusive
+     */
+    public void addAll(int[] values, int from, int to) {
+        
+        for (int i = from; i < to; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * @return the number of inversions of the values added so far.
+     */
+    public long getInversions() {
+        return inversions;
+    }
+
+    /**
+     * @return the number of values added so far.
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Stores the value and returns the number of values stored before that 
+     * are greater than it.
+     * 
+     * @param value
+     * @return 
+     */
+    protected abstract long insert(int value);
+    
+    private static class CompressedInversionCounter extends InversionCounter {
+        
+        private final int[] keys;
+        private final FenwickTree tree;
+
+        CompressedInversionCounter(int[] keys) {
+            
+            int[] sorted = keys.clone();
+            Arrays.sort(sorted);
+            
+            int distinct = 0;
+            
+            for (int i = 0; i < sorted.length; i++) {
+                
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            
+            this.keys = Arrays.copyOf(sorted, distinct);
+            this.tree = new FenwickTree(distinct);
+        }
+
+        @Override
+        protected long insert(int value) {
+            
+            int rank = Arrays.binarySearch(keys, value);
+            
+            if (rank < 0) {
+                throw new IllegalArgumentException("Unknown key: " + value);
+            }
+            
+            long greater = getCount() - tree.prefixSum(rank);
+            tree.add(rank, 1);
+            
+            return greater;
+        }
+    }
+    
+    private static class DynamicInversionCounter extends InversionCounter {
+        
+        // node i has children at 2 * i and 2 * i + 1, where 0 means no 
+        // child; the count of the root is never updated, so counts[0] is 
+        // also the count of a missing child
+        private int[] children = new int[2 * 64];
+        private long[] counts = new long[64];
+        private int nodeCount = 1;
+
+        @Override
+        protected long insert(int value) {
+            
+            // flipping the sign bit orders negative values first
+            int key = value ^ Integer.MIN_VALUE;
+            int node = 0;
+            long greater = 0;
+            
+            for (int bit = Integer.SIZE - 1; bit >= 0; bit--) {
+                
+                int b = (key >>> bit) & 1;
+                
+                if (b == 0) {
+                    greater += counts[children[2 * node + 1]];
+                }
+                
+                int child = children[2 * node + b];
+                
+                if (child == 0) {
+                    child = newNode();
+                    children[2 * node + b] = child;
+                }
+                
+                node = child;
+                counts[node]++;
+            }
+            
+            return greater;
+        }
+        
+        private int newNode() {
+            
+            if (nodeCount == counts.length) {
+                counts = Arrays.copyOf(counts, 2 * counts.length);
+                children = Arrays.copyOf(children, 2 * children.length);
+            }
+            
+            return nodeCount++;
+        }
+    }
+}
@@ -31,14 +31,14 @@ package com.anywarelabs.algorithms.datastructures;
 public class KCluster extends UnionFind {
 
     private final int targetClusterCount;
-    private Integer spacing;
+    private Long spacing;
     
     public KCluster(int vertexCount, int targetClusterCount) {
         super(vertexCount);
         this.targetClusterCount = targetClusterCount;
     }
     
-    public void union(int a, int b, int distance) {
+    public void union(int a, int b, long distance) {
         
         if (getClusterCount() > targetClusterCount) {
             union(a, b);
@@ -57,7 +57,7 @@ public class KCluster extends UnionFind {
         return getElementCount() - getUnionCount();
     }
 
-    public Integer getSpacing() {
+    public Long getSpacing() {
         return spacing;
     }
 }
@@ -0,0 +1,364 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only graph served from a memory-mapped binary file in CSR layout. 
+ * Opening a file only reads its header and maps its sections, so it takes 
+ * O(1) time regardless of the size of the graph, and the adjacency is paged
+ * in by the operating system as it is traversed.
+ * 
+ * <p>File format, all values little-endian:
+ * <pre>
+ * header   magic "CSRG", version, flags (bit 0: directed), vertex count, 
+ *          edge count (long), arc count (long), total edge cost (long),
+ *          padded to {@link #HEADER_SIZE} bytes
+ * offsets  vertex count + 1 longs; the arcs of vertex v are in 
+ *          [offsets[v], offsets[v + 1])
+ * costs    arc count longs
+ * targets  arc count ints
+ * </pre>
+ * The long sections come first, so that they are aligned to 8 bytes. 
+ * Version 1 files, which had int costs after the targets, are rejected.
+ * As in {@link CsrGraph}, undirected edges are stored as two arcs. Arcs are
+ * indexed by longs, and sections larger than 2 GB are mapped in several 
+ * chunks.
+ *
+ * @author Marcio Fonseca
+ */
+public final class MappedGraph implements CompactGraph {
+    
+    static final int MAGIC = 0x47525343;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    
+    private static final int FLAG_DIRECTED = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    
+    // elements per mapping
+    private static final int SHIFT = 27;
+    private static final long MASK = (1L << SHIFT) - 1;
+    
+    private final int vertexCount;
+    private final long edgeCount;
+    private final long arcCount;
+    private final boolean directed;
+    private final long totalEdgeCost;
+    
+    private final LongBuffer[] offsets;
+    private final IntBuffer[] targets;
+    private final LongBuffer[] costs;
+    
+    private MappedGraph(FileChannel channel, Path file) throws IOException {
+        
+        long size = channel.size();
+        
+        if (size < HEADER_SIZE) {
+            throw new IllegalArgumentException("Not a graph file: " + file);
+        }
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        
+        while (header.hasRemaining()) {
+            channel.read(header, header.position());
+        }
+        
+        header.flip();
+        
+        if (header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a graph file: " + file);
+        }
+        
+        int version = header.getInt();
+        
+        if (version != VERSION) {
+            throw new IllegalArgumentException(
+                    "Unsupported graph file version: " + version);
+        }
+        
+        directed = (header.getInt() & FLAG_DIRECTED) != 0;
+        vertexCount = header.getInt();
+        edgeCount = header.getLong();
+        arcCount = header.getLong();
+        totalEdgeCost = header.getLong();
+        
+        long offsetsPosition = HEADER_SIZE;
+        long costsPosition = offsetsPosition 
+                + (vertexCount + 1L) * Long.BYTES;
+        long targetsPosition = costsPosition + arcCount * Long.BYTES;
+        
+        if (vertexCount < 0 || arcCount < 0 
+                || targetsPosition + arcCount * Integer.BYTES != size) {
+            throw new IllegalArgumentException("Truncated graph file: " 
+                    + file);
+        }
+        
+        offsets = mapLongs(channel, offsetsPosition, vertexCount + 1L);
+        costs = mapLongs(channel, costsPosition, arcCount);
+        targets = mapInts(channel, targetsPosition, arcCount);
+    }
+    
+    /**
+     * Maps a graph file written by {@link #write(CompactGraph, Path)}.
+     * 
+     * @param file
+     * @return
+     * @throws IOException 
+     */
+    public static MappedGraph open(Path file) throws IOException {
+        
+        // mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, 
+                StandardOpenOption.READ)) {
+            return new MappedGraph(channel, file);
+        }
+    }
+    
+    private static LongBuffer[] mapLongs(FileChannel channel, long position,
+            long length) throws IOException {
+        
+        LongBuffer[] buffers = new LongBuffer[chunkCount(length)];
+        
+        for (int i = 0; i < buffers.length; i++) {
+            
+            long start = (long) i << SHIFT;
+            long size = Math.min(1L << SHIFT, length - start);
+            
+            buffers[i] = channel.map(MapMode.READ_ONLY, 
+                    position + start * Long.BYTES, size * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        
+        return buffers;
+    }
+    
+    private static IntBuffer[] mapInts(FileChannel channel, long position,
+            long length) throws IOException {
+        
+        IntBuffer[] buffers = new IntBuffer[chunkCount(length)];
+        
+        for (int i = 0; i < buffers.length; i++) {
+            
+            long start = (long) i << SHIFT;
+            long size = Math.min(1L << SHIFT, length - start);
+            
+            buffers[i] = channel.map(MapMode.READ_ONLY, 
+                    position + start * Integer.BYTES, size * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        
+        return buffers;
+    }
+    
+    private static int chunkCount(long length) {
+        return (int) ((length + MASK) >>> SHIFT);
+    }
+    
+    /**
+     * Writes the graph to a file in the format read by {@link #open(Path)}.
+     * 
+     * @param g
+     * @param file
+     * @throws IOException 
+     */
+    public static void write(CompactGraph g, Path file) 
+            throws IOException {
+        
+        try (FileChannel channel = FileChannel.open(file, 
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(g.isDirected() ? FLAG_DIRECTED : 0);
+            buffer.putInt(g.size());
+            buffer.putLong(g.getEdgeCount());
+            buffer.putLong(g.getArcCount());
+            buffer.putLong(g.getTotalEdgeCost());
+            buffer.position(HEADER_SIZE);
+            
+            for (int v = 0; v < g.size(); v++) {
+                ensureRemaining(channel, buffer, Long.BYTES);
+                buffer.putLong(g.getArcStart(v));
+            }
+            
+            ensureRemaining(channel, buffer, Long.BYTES);
+            buffer.putLong(g.getArcCount());
+            
+            for (long arc = 0; arc < g.getArcCount(); arc++) {
+                ensureRemaining(channel, buffer, Long.BYTES);
+                buffer.putLong(g.getCost(arc));
+            }
+            
+            for (long arc = 0; arc < g.getArcCount(); arc++) {
+                ensureRemaining(channel, buffer, Integer.BYTES);
+                buffer.putInt(g.getTarget(arc));
+            }
+            
+            flush(channel, buffer);
+        }
+    }
+    
+    /**
+     * Converts the graph to CSR layout and writes it to a file.
+     * 
+     * @param g
+     * @param file
+     * @throws IOException 
+     */
+    public static void write(DirectedGraph g, Path file) throws IOException {
+        write(CsrGraph.of(g), file);
+    }
+    
+    /**
+     * Converts the graph to CSR layout and writes it to a file.
+     * 
+     * @param g
+     * @param file
+     * @throws IOException 
+     */
+    public static void write(UndirectedGraph g, Path file) 
+            throws IOException {
+        write(CsrGraph.of(g), file);
+    }
+    
+    private static void ensureRemaining(FileChannel channel, 
+            ByteBuffer buffer, int bytes) throws IOException {
+        
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+    
+    private static void flush(FileChannel channel, ByteBuffer buffer) 
+            throws IOException {
+        
+        buffer.flip();
+        
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        
+        buffer.clear();
+    }
+    
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+    
+    /**
+     * Returns the number of vertices.
+     * 
+     * @return 
+     */
+    @Override
+    public int size() {
+        return vertexCount;
+    }
+    
+    /**
+     * Returns the number of edges. Each undirected edge is counted once.
+     * 
+     * @return 
+     */
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+    
+    @Override
+    public long getArcCount() {
+        return arcCount;
+    }
+    
+    @Override
+    public long getTotalEdgeCost() {
+        return totalEdgeCost;
+    }
+    
+    @Override
+    public int getDegree(int vertex) {
+        return (int) (getArcEnd(vertex) - getArcStart(vertex));
+    }
+    
+    /**
+     * Returns the first arc leaving the vertex.
+     * 
+     * @param vertex
+     * @return 
+     */
+    @Override
+    public long getArcStart(int vertex) {
+        return offsets[vertex >>> SHIFT].get((int) (vertex & MASK));
+    }
+    
+    /**
+     * Returns one past the last arc leaving the vertex.
+     * 
+     * @param vertex
+     * @return 
+     */
+    @Override
+    public long getArcEnd(int vertex) {
+        return getArcStart(vertex + 1);
+    }
+    
+    @Override
+    public int getTarget(long arc) {
+        return targets[(int) (arc >>> SHIFT)].get((int) (arc & MASK));
+    }
+    
+    @Override
+    public long getCost(long arc) {
+        return costs[(int) (arc >>> SHIFT)].get((int) (arc & MASK));
+    }
+    
+    @Override
+    public String toString() {
+        
+        StringBuilder builder = new StringBuilder("MappedGraph: ");
+        builder.append(vertexCount);
+        builder.append(" vertices, ");
+        builder.append(edgeCount);
+        builder.append(directed ? " directed" : " undirected");
+        builder.append(" edges");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+/**
+ * Immutable graph in CSR layout whose vertex offsets, targets and costs are
+ * stored in direct buffers, outside the Java heap. Arcs are indexed by 
+ * longs, so the number of arcs is not limited by the size of a Java array,
+ * and the adjacency does not add to the work of the garbage collector. The 
+ * buffers are released when the graph is collected.
+ * 
+ * <p>Graphs are created by a {@link Builder}, which also keeps the edges 
+ * off the heap, or copied from another graph. As in {@link CsrGraph}, 
+ * undirected edges are stored as two arcs, and vertex labels are dense, in 
+ * [0, size()). Direct memory is limited by -XX:MaxDirectMemorySize.
+ *
+ * @author Marcio Fonseca
+ */
+public final class OffHeapGraph implements CompactGraph {
+    
+    private final int vertexCount;
+    private final boolean directed;
+    private final long edgeCount;
+    private final long totalEdgeCost;
+    
+    private final DirectLongArray offsets;
+    private final DirectIntArray targets;
+    private final DirectLongArray costs;
+    
+    private OffHeapGraph(int vertexCount, boolean directed, long edgeCount, 
+            long totalEdgeCost, DirectLongArray offsets, 
+            DirectIntArray targets, DirectLongArray costs) {
+        
+        this.vertexCount = vertexCount;
+        this.directed = directed;
+        this.edgeCount = edgeCount;
+        this.totalEdgeCost = totalEdgeCost;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+    
+    /**
+     * Copies a compact graph, such as a {@link MappedGraph}, arc by arc.
+     * 
+     * @param g
+     * @return 
+     */
+    public static OffHeapGraph copyOf(CompactGraph g) {
+        
+        int vertexCount = g.size();
+        long arcCount = g.getArcCount();
+        
+        DirectLongArray offsets = new DirectLongArray(vertexCount + 1L);
+        DirectIntArray targets = new DirectIntArray(arcCount);
+        DirectLongArray costs = new DirectLongArray(arcCount);
+        
+        for (int v = 0; v < vertexCount; v++) {
+            offsets.set(v, g.getArcStart(v));
+        }
+        
+        offsets.set(vertexCount, arcCount);
+        
+        for (long arc = 0; arc < arcCount; arc++) {
+            targets.set(arc, g.getTarget(arc));
+            costs.set(arc, g.getCost(arc));
+        }
+        
+        return new OffHeapGraph(vertexCount, g.isDirected(), 
+                g.getEdgeCount(), g.getTotalEdgeCost(), offsets, targets, 
+                costs);
+    }
+    
+    /**
+     * Copies a graph. Vertex labels are kept, and labels without a vertex 
+     * become isolated vertices.
+     * 
+     * @param g
+     * @return 
+     */
+    public static OffHeapGraph copyOf(Graph<?> g) {
+        
+        Builder builder = new Builder(g.getVertexView().size(), 
+                g.isDirected());
+        g.forEachEdge(builder::addEdge);
+        return builder.build();
+    }
+    
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+    
+    @Override
+    public int size() {
+        return vertexCount;
+    }
+    
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+    
+    @Override
+    public long getArcCount() {
+        return targets.length();
+    }
+    
+    @Override
+    public long getTotalEdgeCost() {
+        return totalEdgeCost;
+    }
+    
+    @Override
+    public long getArcStart(int vertex) {
+        return offsets.get(vertex);
+    }
+    
+    @Override
+    public long getArcEnd(int vertex) {
+        return offsets.get(vertex + 1L);
+    }
+    
+    @Override
+    public int getTarget(long arc) {
+        return targets.get(arc);
+    }
+    
+    @Override
+    public long getCost(long arc) {
+        return costs.get(arc);
+    }
+    
+    @Override
+    public String toString() {
+        
+        StringBuilder builder = new StringBuilder("OffHeapGraph: ");
+        builder.append(vertexCount);
+        builder.append(" vertices, ");
+        builder.append(edgeCount);
+        builder.append(directed ? " directed" : " undirected");
+        builder.append(" edges");
+        return builder.toString();
+    }
+    
+    /**
+     * Collects edges off the heap and sorts them by source into an 
+     * {@link OffHeapGraph}. Arcs leaving the same vertex keep the order in
+     * which the edges were added.
+     */
+    public static final class Builder {
+        
+        private final int vertexCount;
+        private final boolean directed;
+        
+        private final DirectIntArray sources = new DirectIntArray();
+        private final DirectIntArray targets = new DirectIntArray();
+        private final DirectLongArray costs = new DirectLongArray();
+        
+        public Builder(int vertexCount, boolean directed) {
+            
+            if (vertexCount < 0) {
+                throw new IllegalArgumentException("Negative vertex count: "
+                        + vertexCount);
+            }
+            
+            this.vertexCount = vertexCount;
+            this.directed = directed;
+        }
+        
+        public Builder addEdge(int source, int target, long cost) {
+            
+            checkVertex(source);
+            checkVertex(target);
+            
+            sources.add(source);
+            targets.add(target);
+            costs.add(cost);
+            return this;
+        }
+        
+        private void checkVertex(int vertex) {
+            
+            if (vertex < 0 || vertex >= vertexCount) {
+                throw new IllegalArgumentException("Vertex out of range: " 
+                        + vertex);
+            }
+        }
+        
+        public OffHeapGraph build() {
+            
+            long count = sources.length();
+            long arcCount = directed ? count : 2 * count;
+            
+            DirectLongArray offsets = new DirectLongArray(vertexCount + 1L);
+            long total = 0;
+            
+            for (long i = 0; i < count; i++) {
+                
+                increment(offsets, sources.get(i) + 1L);
+                
+                if (!directed) {
+                    increment(offsets, targets.get(i) + 1L);
+                }
+                
+                total += costs.get(i);
+            }
+            
+            for (int v = 0; v < vertexCount; v++) {
+                offsets.set(v + 1L, offsets.get(v + 1L) + offsets.get(v));
+            }
+            
+            // counting sort of the edges by source, using a copy of the 
+            // offsets as insertion cursors
+            DirectLongArray next = new DirectLongArray(vertexCount);
+            
+            for (int v = 0; v < vertexCount; v++) {
+                next.set(v, offsets.get(v));
+            }
+            
+            DirectIntArray arcTargets = new DirectIntArray(arcCount);
+            DirectLongArray arcCosts = new DirectLongArray(arcCount);
+            
+            for (long i = 0; i < count; i++) {
+                
+                int source = sources.get(i);
+                int target = targets.get(i);
+                long cost = costs.get(i);
+                
+                long arc = next.get(source);
+                next.set(source, arc + 1);
+                arcTargets.set(arc, target);
+                arcCosts.set(arc, cost);
+                
+                if (!directed) {
+                    arc = next.get(target);
+                    next.set(target, arc + 1);
+                    arcTargets.set(arc, source);
+                    arcCosts.set(arc, cost);
+                }
+            }
+            
+            return new OffHeapGraph(vertexCount, directed, count, total, 
+                    offsets, arcTargets, arcCosts);
+        }
+        
+        private static void increment(DirectLongArray array, long index) {
+            array.set(index, array.get(index) + 1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Read access to the adjacency of a graph, shared by the object graphs and
+ * the compact graphs, so that searches and traversals run on any of them.
+ *
+ * @author Marcio Fonseca
+ */
+public interface TraversableGraph {
+    
+    /**
+     * Returns the number of vertices.
+     * 
+     * @return 
+     */
+    int size();
+    
+    boolean isDirected();
+    
+    /**
+     * Returns the number of arcs leaving the vertex.
+     * 
+     * @param vertex
+     * @return 
+     */
+    int getDegree(int vertex);
+    
+    /**
+     * Returns the vertex reached by the index-th arc leaving the given one,
+     * in the order of {@link #forEachNeighbor(int, IntConsumer)}. Together
+     * with {@link #getDegree(int)} it lets iterative searches keep a cursor
+     * per vertex.
+     * 
+     * @param vertex
+     * @param index
+     * @return 
+     */
+    int getNeighbor(int vertex, int index);
+    
+    /**
+     * Returns the cost of the index-th arc leaving the vertex.
+     * 
+     * @param vertex
+     * @param index
+     * @return 
+     */
+    long getNeighborCost(int vertex, int index);
+    
+    /**
+     * Performs the action for each vertex connected to the given one.
+     * 
+     * @param vertex
+     * @param action 
+     */
+    void forEachNeighbor(int vertex, IntConsumer action);
+    
+    /**
+     * Performs the action for each arc leaving the given vertex, with the 
+     * vertex as source. Undirected edges leave both of their vertices.
+     * 
+     * @param vertex
+     * @param action 
+     */
+    void forEachArc(int vertex, IntIntLongConsumer action);
+}
@@ -27,7 +27,6 @@ package com.anywarelabs.algorithms.datastructures;
 import com.anywarelabs.algorithms.datastructures.UndirectedGraph.UndirectedEdge;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  *
@@ -36,27 +35,27 @@ import java.util.Objects;
 public class UndirectedGraph extends Graph<UndirectedEdge>{
     
     public class UndirectedEdge extends Graph.Edge {
-        private final Integer x;
-        private final Integer y;
+        private final int x;
+        private final int y;
         
-        public UndirectedEdge(Integer x, Integer y, Integer cost) {
+        public UndirectedEdge(int x, int y, long cost) {
             this.x = x;
             this.y = y;
             this.cost = cost;
         }
 
-        public Integer getEither() {
+        public int getEither() {
             return x;
         }
         
-        public Integer getOther(Integer vertex) {
-            return vertex.equals(x) ? y : x;
+        public int getOther(int vertex) {
+            return vertex == x ? y : x;
         }
         
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder("Edge: ");
-            Integer vertex = getEither();
+            int vertex = getEither();
             builder.append(vertex + 1);
             builder.append(" -- ");
             builder.append(getOther(vertex) + 1);
@@ -75,44 +74,37 @@ public class UndirectedGraph extends Graph<UndirectedEdge>{
             }
             
             final UndirectedEdge other = (UndirectedEdge) obj;
-            
-            if (!Objects.equals(this.x, other.x)) {
-                return false;
-            }
-            
-            if (!Objects.equals(this.y, other.y)) {
-                return false;
-            }
-            
-            return Objects.equals(this.cost, other.cost);
+            return x == other.x && y == other.y && cost == other.cost;
         }
         
         @Override
         public int hashCode() {
             int hash = 7;
-            hash = 97 * hash + Objects.hashCode(this.x);
-            hash = 97 * hash + Objects.hashCode(this.y);
-            hash = 97 * hash + Objects.hashCode(this.cost);
+            hash = 97 * hash + x;
+            hash = 97 * hash + y;
+            hash = 97 * hash + Long.hashCode(cost);
             return hash;
         }
 
         @Override
         public boolean containsVertex(int label) {
-            
-            if (x != null && x.equals(label)) {
-                return true;
-            
-            } else if (y != null && y.equals(label)) {
-                return true;
-            }
-            
-            return false;
+            return x == label || y == label;
         }
 
         @Override
         public UndirectedEdge getReverse() {
             return new UndirectedEdge(y, x, cost);
         }
+        
+        @Override
+        int first() {
+            return x;
+        }
+        
+        @Override
+        int second() {
+            return y;
+        }
     }
     
     public UndirectedGraph() {
@@ -123,105 +115,50 @@ public class UndirectedGraph extends Graph<UndirectedEdge>{
     }
     
     @Override
-    public void addEdge(UndirectedEdge edge) {
-        
-        if (totalEdgeCost == null) {
-            totalEdgeCost = 0;
-        }
-        
-        if (edges == null) {
-            edges = new ArrayList<>();
-        }
-        
-        if (edges.add(edge)) {
-            totalEdgeCost += edge.getCost();
-        }
-        
-        Integer either = edge.getEither();
-        Vertex vertex = getVertex(either);
-        
-        if (vertex == null) {
-            vertex = new Vertex();
-            addVertex(either, vertex);
-        }
-        
-        vertex.addEdge(edge);
-        
-        Integer other = edge.getOther(either);
-        vertex = getVertex(other);
-        
-        if (vertex == null) {
-            vertex = new Vertex();
-            addVertex(other, vertex);
-        }
-
-        vertex.addEdge(edge);
-    }
-    
-    @Override
-    public final boolean removeEdge(UndirectedEdge edge) {
-        
-        //System.out.printf("Removing edge %s\n", edge.toString());
-        boolean removed = false;
-        
-        if (edges != null) {
-           removed = edges.remove(edge);
-        }
-        
-        if (removed) {
-            int either = edge.getEither();
-            int other = edge.getOther(either);
-
-            Vertex vEither = getVertex(either);
-            vEither.removeEdge(edge);
-
-            Vertex vOther = getVertex(other);
-            vOther.removeEdge(edge);
-
-            totalEdgeCost -= edge.getCost();
-        }
-        
-        //System.out.printf("Removed edge %s (%b)\n", edge.toString(), removed);
-        
-        return removed;
+    public boolean isDirected() {
+        return false;
     }
     
+    /**
+     * Merges the other vertex of the edge into its first vertex. Edges of 
+     * the merged vertex are moved, and every edge between the two vertices 
+     * is removed, so no self loops are created. Takes O(degree) time.
+     * 
+     * @param edge 
+     */
     @Override
     public final void contractEdge(UndirectedEdge edge) {
         
-        //System.out.println("======================");
-        //System.out.println("Vertex count: " + getVertexCount() + " || " + getEdges().size());
-        while(removeEdge(edge)){} // we may have several parallel edges
-        UndirectedEdge inverseEdge = edge.getReverse();
-        while(removeEdge(inverseEdge)){}
-        
         int either = edge.getEither();
         int other = edge.getOther(either);
         
-        //Vertex vEither = getVertex(either);
+        if (either == other) {
+            removeEdge(edge);
+            return;
+        }
+        
         Vertex vOther = getVertex(other);
         
-        for (UndirectedEdge e: vOther.getEdges()) {
-            
-            UndirectedEdge newEdge;
+        for (UndirectedEdge e: new ArrayList<>(vOther.getEdges())) {
             
-            if (e.getEither().equals(other)) {
-                newEdge = new UndirectedEdge(either, e.getOther(other), e.getCost());
-                
-            } else {
-                newEdge = new UndirectedEdge(either, e.getEither(), e.getCost());
+            if (e.owner != this) {
+                continue; // second copy of a self loop
             }
             
-            //System.out.printf("Adding edge %s\n", newEdge.toString());
-            addEdge(newEdge);
+            delete(e);
+            
+            int end = e.getOther(other);
+            
+            if (end != either && end != other) {
+                addEdge(new UndirectedEdge(either, end, e.getCost()));
+            }
         }
         
-        //System.out.printf("Removing vertex %d\n", other+1);
         removeVertex(other);
     }
     
     @Override
-    public UndirectedEdge createEdge(Integer x, Integer y, Integer cost) {
+    public UndirectedEdge createEdge(int x, int y, long cost) {
         return new UndirectedEdge(x, y, cost);
     }
     
@@ -233,7 +170,7 @@ public class UndirectedGraph extends Graph<UndirectedEdge>{
         
         for (UndirectedEdge edge: v.getEdges()) {
             
-            if (edge.getEither().equals(vertex)) {
+            if (edge.getEither() == vertex) {
                 connected.add(edge.getOther(vertex));
             
             } else {
@@ -0,0 +1,219 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.anywarelabs.algorithms.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary from sparse 64-bit vertex ids to dense int labels, assigned in 
+ * the order the ids are first seen, with the reverse mapping from labels 
+ * to ids. Graphs built on the labels only hold the vertices that exist, 
+ * however sparse the ids are.
+ * 
+ * <p>Ids are kept in a primitive open-addressing table with linear probing,
+ * at most three quarters full, so each vertex takes about 24 to 48 bytes 
+ * and no boxing.
+ *
+ * @author Marcio Fonseca
+ */
+public final class VertexIdMap {
+    
+    private static final int MAX_CAPACITY = 1 << 30;
+    
+    private long[] keys;
+    // label + 1 of each slot, 0 for an empty slot
+    private int[] values;
+    private long[] ids;
+    private int size;
+    private int mask;
+    
+    public VertexIdMap() {
+        this(16);
+    }
+    
+    /**
+     * @param expectedSize number of ids the map can hold without resizing
+     */
+    public VertexIdMap(int expectedSize) {
+        
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative size: " 
+                    + expectedSize);
+        }
+        
+        int capacity = tableSize(expectedSize);
+        keys = new long[capacity];
+        values = new int[capacity];
+        ids = new long[Math.max(expectedSize, 16)];
+        mask = capacity - 1;
+    }
+    
+    private static int tableSize(int expectedSize) {
+        
+        long minimum = Math.max(4L * expectedSize / 3 + 1, 16);
+        
+        if (minimum > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many ids: " 
+                    + expectedSize);
+        }
+        
+        return Integer.highestOneBit((int) minimum - 1) << 1;
+    }
+    
+    /**
+     * Finalizer of MurmurHash3, so that ids sharing their low bits spread 
+     * over the table.
+     */
+    private static int hash(long id) {
+        
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return (int) id;
+    }
+    
+    /**
+     * Returns the label of the id, assigning the next label if the id is 
+     * new.
+     * 
+     * @param id
+     * @return 
+     */
+    public int getOrAdd(long id) {
+        
+        int slot = hash(id) & mask;
+        
+        while (values[slot] != 0) {
+            
+            if (keys[slot] == id) {
+                return values[slot] - 1;
+            }
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        int label = size++;
+        keys[slot] = id;
+        values[slot] = label + 1;
+        
+        if (label == ids.length) {
+            ids = Arrays.copyOf(ids, (int) Math.min(2L * label, 
+                    Integer.MAX_VALUE - 8));
+        }
+        
+        ids[label] = id;
+        
+        if (4L * size > 3L * keys.length) {
+            rehash();
+        }
+        
+        return label;
+    }
+    
+    /**
+     * Returns the label of the id, or -1 if it has none.
+     * 
+     * @param id
+     * @return 
+     */
+    public int get(long id) {
+        
+        int slot = hash(id) & mask;
+        
+        while (values[slot] != 0) {
+            
+            if (keys[slot] == id) {
+                return values[slot] - 1;
+            }
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    public boolean contains(long id) {
+        return get(id) >= 0;
+    }
+    
+    /**
+     * Returns the id that was given the label.
+     * 
+     * @param label
+     * @return 
+     */
+    public long getId(int label) {
+        
+        if (label < 0 || label >= size) {
+            throw new IndexOutOfBoundsException("Label: " + label);
+        }
+        
+        return ids[label];
+    }
+    
+    /**
+     * Returns the number of ids, which is also the next label.
+     * 
+     * @return 
+     */
+    public int size() {
+        return size;
+    }
+    
+    private void rehash() {
+        
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Too many ids: " + size);
+        }
+        
+        int capacity = keys.length << 1;
+        long[] newKeys = new long[capacity];
+        int[] newValues = new int[capacity];
+        mask = capacity - 1;
+        
+        // labels are dense, so the table is rebuilt from the reverse mapping
+        for (int label = 0; label < size; label++) {
+            
+            int slot = hash(ids[label]) & mask;
+            
+            while (newValues[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            
+            newKeys[slot] = ids[label];
+            newValues[slot] = label + 1;
+        }
+        
+        keys = newKeys;
+        values = newValues;
+    }
+    
+    @Override
+    public String toString() {
+        return "VertexIdMap: " + size + " ids";
+    }
+}
@@ -24,15 +24,11 @@
 
 package com.anywarelabs.algorithms.greedy;
 
+import com.anywarelabs.algorithms.datastructures.GraphReader;
 import com.anywarelabs.algorithms.datastructures.KCluster;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,48 +41,40 @@ public class MaxSpacingKClustering {
     
     public static KCluster getKClusterBinaryStrings(InputStream in, int minSpacing) {
         
-        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+        try {
             
-            String line = reader.readLine();
-            String[] lineSplit = line.split(" ");
+            int[] lines = GraphReader.readBitStrings(in);
+            int bits = 0;
             
-            //Integer nodeCount;
-            Integer bitCount = Integer.parseInt(lineSplit[1]);
+            for (int line : lines) {
+                bits |= line;
+            }
+            
+            // bits that are zero in every node never lead to another node
+            int bitCount = Math.max(1, Integer.SIZE 
+                    - Integer.numberOfLeadingZeros(bits));
             
-            int[] allNodes = new int[(int)Math.pow(2, bitCount)];
+            int[] allNodes = new int[1 << bitCount];
             int index = 0;
             
             for (int i = 0; i < allNodes.length; i++) {
                 allNodes[i] = -1;
             }
             
-            List<Integer> nodeList = new ArrayList<>();
+            int[] nodes = new int[lines.length];
             
-            while((line = reader.readLine()) != null) {
-                
-                StringTokenizer parser = new StringTokenizer(line);
-                int count = 0;
-                int node = 0;
-                
-                while (parser.hasMoreTokens()) {
-                    node = node ^ (Integer.parseInt(parser.nextToken()) << count++);
-                }
+            for (int node : lines) {
                 
                 if (allNodes[node] < 0) {
                     
                     allNodes[node] = index;
-                    nodeList.add(index, node);
+                    nodes[index] = node;
                     index++;
                 }
             }
             
-            int[] nodes = new int[nodeList.size()];
-            
-            for (int i = 0; i < nodeList.size(); i++) {
-                nodes[i] = nodeList.get(i);
-            }
-            
-            return createCluster(nodes, allNodes, bitCount, minSpacing);
+            return createCluster(Arrays.copyOf(nodes, index), allNodes, 
+                    bitCount, minSpacing);
             
         } catch(IOException ex) {
             Logger.getLogger(MaxSpacingKClustering.class.getName())
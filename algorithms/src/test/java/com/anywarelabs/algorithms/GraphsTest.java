@@ -23,18 +23,33 @@
  */
 package com.anywarelabs.algorithms;
 
+import com.anywarelabs.algorithms.datastructures.CompactGraph;
+import com.anywarelabs.algorithms.datastructures.ConcurrentGraph;
+import com.anywarelabs.algorithms.datastructures.CsrGraph;
 import com.anywarelabs.algorithms.datastructures.DirectedGraph;
 import com.anywarelabs.algorithms.datastructures.Graph;
+import com.anywarelabs.algorithms.datastructures.GraphReader;
+import com.anywarelabs.algorithms.datastructures.GraphReader.Format;
 import com.anywarelabs.algorithms.datastructures.KCluster;
+import com.anywarelabs.algorithms.datastructures.MappedGraph;
+import com.anywarelabs.algorithms.datastructures.OffHeapGraph;
 import com.anywarelabs.algorithms.datastructures.UndirectedGraph;
-import java.io.BufferedReader;
+import com.anywarelabs.algorithms.datastructures.VertexIdMap;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.junit.After;
@@ -97,7 +112,7 @@ public class GraphsTest {
         UndirectedGraph g = processInputMST(GraphsTest.class.getResourceAsStream("edges2.txt"));
         Graph result = Graphs.getKruskalMST(g);
         
-        Integer expResult = 113;
+        long expResult = 113;
         assertEquals(expResult, result.getTotalEdgeCost());
         
         g = processInputMST(GraphsTest.class.getResourceAsStream("edges3.txt"));
@@ -121,7 +136,7 @@ public class GraphsTest {
         UndirectedGraph g = processInputMST(GraphsTest.class.getResourceAsStream("edges2.txt"));
         Graph result = Graphs.getPrimMST(g);
         
-        Integer expResult = 113;
+        long expResult = 113;
         assertEquals(expResult, result.getTotalEdgeCost());
         
         g = processInputMST(GraphsTest.class.getResourceAsStream("edges3.txt"));
@@ -145,18 +160,18 @@ public class GraphsTest {
         UndirectedGraph g = processInputMST(GraphsTest.class.getResourceAsStream("edges2.txt"));
         KCluster result = Graphs.getKCluster(g, 2);
         
-        Integer expResult = 67;
+        Long expResult = 67L;
         assertEquals(expResult, result.getSpacing());
         
         g = processInputMST(GraphsTest.class.getResourceAsStream("edges3.txt"));
         result = Graphs.getKCluster(g, 3);
         
-        expResult = 20;
+        expResult = 20L;
         assertEquals(expResult, result.getSpacing());
         
         result = Graphs.getKCluster(g, 2);
         
-        expResult = 45;
+        expResult = 45L;
         assertEquals(expResult, result.getSpacing());
         
         g = processInputMST(GraphsTest.class.getResourceAsStream("clustering1.txt"));
@@ -230,189 +245,660 @@ public class GraphsTest {
         System.out.println("Shortest paths: " + result);
     }
     
-    private String getDistancesString(Integer[] distances, int... vertices) {
+    /**
+     * Test of ShortestPaths, against Bellman-Ford on random graphs with long 
+     * costs and unreachable vertices.
+     */
+    @Test
+    public void testShortestPaths() {
         
-        StringBuilder builder = new StringBuilder("");
+        DirectedGraph dg = processInputDijkstra(GraphsTest.class.getResourceAsStream("dijkstraData.txt"));
+        long[] expDistances = bellmanFord(dg, 0);
+        Assert.assertArrayEquals(expDistances, Graphs.getShortestDistances(dg, 0));
+        Assert.assertArrayEquals(expDistances, 
+                Graphs.getShortestDistances(CsrGraph.of(dg), 0));
         
-        for (int i=0; i<vertices.length; i++) {
-            if (i>0) {
-                builder.append(",");
+        Random random = new Random(6000);
+        DirectedGraph g = new DirectedGraph();
+        
+        for (int v = 0; v < 300; v++) {
+            g.addEdge(g.createEdge(v, v, 0));
+        }
+        
+        // vertices 200 to 299 have no incoming edges from the others
+        for (int i = 0; i < 3000; i++) {
+            
+            int source = random.nextInt(300);
+            int target = random.nextInt(source < 200 ? 200 : 300);
+            g.addEdge(g.createEdge(source, target, 
+                    random.nextInt(1000) * (long) Integer.MAX_VALUE));
+        }
+        
+        for (int arity : new int[] {2, 4, 8}) {
+            
+            ShortestPaths paths = new ShortestPaths(g, arity);
+            
+            // the engine is reused for every source
+            for (int source = 0; source < 300; source += 7) {
+                
+                long[] exp = bellmanFord(g, source);
+                paths.search(source);
+                Assert.assertArrayEquals(exp, paths.getDistances());
+                assertEquals(source, paths.getSource());
+                assertEquals(-1, paths.getParent(source));
+                
+                int reached = 0;
+                
+                for (int v = 0; v < exp.length; v++) {
+                    
+                    if (!paths.isReachable(v)) {
+                        assertEquals(ShortestPaths.UNREACHABLE, exp[v]);
+                        continue;
+                    }
+                    
+                    reached++;
+                    
+                    // the last edge of a shortest path comes from the parent
+                    int parent = paths.getParent(v);
+                    
+                    if (v != source) {
+                        
+                        long best = Long.MAX_VALUE;
+                        
+                        for (DirectedGraph.DirectedEdge e : g.getVertex(parent).getEdges()) {
+                            
+                            if (e.getTarget() == v) {
+                                best = Math.min(best, e.getCost());
+                            }
+                        }
+                        
+                        assertEquals(paths.getDistance(v), 
+                                paths.getDistance(parent) + best);
+                    }
+                }
+                
+                assertEquals(reached, paths.getReachedCount());
             }
+        }
+        
+        g.addEdge(g.createEdge(0, 1, -1));
+        
+        try {
+            new ShortestPaths(g).search(0);
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+    
+    private static long[] bellmanFord(DirectedGraph g, int source) {
+        
+        long[] distances = new long[g.size()];
+        Arrays.fill(distances, ShortestPaths.UNREACHABLE);
+        distances[source] = 0;
+        boolean changed = true;
+        
+        while (changed) {
             
-            if (distances[vertices[i]-1] == null) {
-                builder.append(1000000);
+            changed = false;
+            
+            for (DirectedGraph.DirectedEdge e : g.getEdges()) {
                 
-            } else {
-                builder.append(distances[vertices[i]-1]);
+                if (distances[e.getSource()] != ShortestPaths.UNREACHABLE
+                        && distances[e.getSource()] + e.getCost() 
+                        < distances[e.getTarget()]) {
+                    distances[e.getTarget()] = distances[e.getSource()] + e.getCost();
+                    changed = true;
+                }
             }
         }
         
-        return builder.toString();
+        return distances;
     }
     
-    private String getSCCSizesString(List<List<Integer>> sccs, int count) {
-        String result = "";
+    /**
+     * Test of the CsrGraph overloads of class Graphs.
+     */
+    @Test
+    public void testCsrGraph() {
+        System.out.println("csrGraph");
         
-        List<List<Integer>> ordered = new ArrayList<>();
+        UndirectedGraph g = processInputMST(GraphsTest.class.getResourceAsStream("edges2.txt"));
+        CsrGraph csr = CsrGraph.of(g);
+        assertEquals(g.getEdges().size(), csr.getEdgeCount());
+        assertEquals(2 * csr.getEdgeCount(), csr.getArcCount());
+        assertEquals(113, Graphs.getKruskalMST(csr).getTotalEdgeCost());
+        assertEquals(113, Graphs.getPrimMST(csr).getTotalEdgeCost());
         
-        for (List<Integer> component: sccs) {
-            ordered.add(new ComparableArrayList(component));
+        csr = CsrGraph.of(processInputMST(GraphsTest.class.getResourceAsStream("edges3.txt")));
+        assertEquals(89, Graphs.getKruskalMST(csr).getTotalEdgeCost());
+        assertEquals(89, Graphs.getPrimMST(csr).getTotalEdgeCost());
+        
+        g = processInputMST(GraphsTest.class.getResourceAsStream("edges1.txt"));
+        csr = CsrGraph.of(g);
+        long expCost = Graphs.getKruskalMST(g).getTotalEdgeCost();
+        assertEquals(expCost, Graphs.getKruskalMST(csr).getTotalEdgeCost());
+        assertEquals(expCost, Graphs.getPrimMST(csr).getTotalEdgeCost());
+        assertEquals(csr.size() - 1, Graphs.getPrimMST(csr).getEdgeCount());
+        
+        for (String file : new String[] {"dijkstraData-small1.txt", 
+                "dijkstraData-small2.txt", "dijkstraData-small3.txt", 
+                "dijkstraData.txt"}) {
+            
+            DirectedGraph dg = processInputDijkstra(GraphsTest.class.getResourceAsStream(file));
+            csr = CsrGraph.of(dg);
+            Assert.assertArrayEquals(Graphs.dijkstra(dg, 0), Graphs.dijkstra(csr, 0));
         }
         
-        Collections.sort(ordered, Collections.reverseOrder());
+        String[] sccFiles = {"SCC-small1.txt", "SCC-small2.txt", 
+            "SCC-small3.txt", "SCC-small4.txt", "SCC-small5.txt"};
+        String[] expResults = {"3,3,3,0,0", "3,3,2,0,0", "3,3,1,1,0", 
+            "7,1,0,0,0", "6,3,2,1,0"};
         
-        for (int i=0; i<count && i<ordered.size(); i++) {
+        for (int i = 0; i < sccFiles.length; i++) {
             
-            if (i > 0) {
-                result += ",";
-            }
+            DirectedGraph dg = processInputSCC(GraphsTest.class.getResourceAsStream(sccFiles[i]));
+            csr = CsrGraph.of(dg);
+            assertEquals(csr.getArcCount(), csr.transpose().getArcCount());
+            List<List<Integer>> sccs = Graphs.getStronglyConnectedComponents(csr);
+            assertEquals(expResults[i], getSCCSizesString(sccs, 5));
             
-            result += ordered.get(i).size();
+            // the object graph is traversed through its transpose view
+            List<DirectedGraph.DirectedEdge> edges = dg.getEdges();
+            sccs = Graphs.getStronglyConnectedComponents(dg);
+            assertEquals(expResults[i], getSCCSizesString(sccs, 5));
+            assertEquals(edges, dg.getEdges());
         }
+    }
+    
+    /**
+     * Test of costs that do not fit in an int, through the reader and the 
+     * compact graphs.
+     */
+    @Test
+    public void testLongCosts() throws IOException {
+        System.out.println("longCosts");
         
-        for (int i=0; i<(count - ordered.size()); i++) {
+        long big = 3L * Integer.MAX_VALUE;
+        byte[] edges = ("1 2 " + big + "\n2 3 " + big + "\n1 3 " + (2 * big + 1) 
+                + "\n3 4 1\n").getBytes(StandardCharsets.US_ASCII);
+        
+        UndirectedGraph g = new GraphReader(Format.EDGE_LIST).readUndirectedGraph(
+                new ByteArrayInputStream(edges));
+        CsrGraph csr = new GraphReader(Format.EDGE_LIST, 8).readCsrGraph(
+                new ByteArrayInputStream(edges), false);
+        assertEquals(4 * big + 2, g.getTotalEdgeCost());
+        assertEquals(g.getTotalEdgeCost(), csr.getTotalEdgeCost());
+        
+        ConcurrentGraph concurrent = new ConcurrentGraph(false);
+        g.forEachEdge(concurrent::addEdge);
+        assertEquals(g.getTotalEdgeCost(), concurrent.snapshot().getTotalEdgeCost());
+        assertEquals(big, concurrent.snapshot().getNeighborCost(0, 0));
+        
+        Path file = Files.createTempFile("graph", ".bin");
+        
+        try {
+            MappedGraph.write(g, file);
             
-            result += ",0";
+            CompactGraph[] graphs = {csr, CsrGraph.of(g), OffHeapGraph.copyOf(g), 
+                OffHeapGraph.copyOf(csr), MappedGraph.open(file)};
+            
+            for (CompactGraph compact : graphs) {
+                
+                assertEquals(g.getTotalEdgeCost(), compact.getTotalEdgeCost());
+                assertEquals(2 * big + 1, Graphs.getKruskalMST(compact).getTotalEdgeCost());
+                assertEquals(2 * big + 1, Graphs.getPrimMST(compact).getTotalEdgeCost());
+                Assert.assertArrayEquals(new long[] {0, big, 2 * big, 2 * big + 1}, 
+                        Graphs.getShortestDistances(compact, 0));
+            }
+            
+        } finally {
+            Files.deleteIfExists(file);
         }
-        
-        return result;
     }
     
-    private DirectedGraph processInputDijkstra(InputStream in) {
+    /**
+     * Test of the binary file format, of class MappedGraph.
+     */
+    @Test
+    public void testMappedGraph() throws IOException {
+        System.out.println("mappedGraph");
         
-        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            
-            DirectedGraph g = new DirectedGraph();
-            String line;
+        Path file = Files.createTempFile("graph", ".bin");
+        
+        try {
+            CsrGraph[] graphs = {
+                CsrGraph.of(processInputDijkstra(GraphsTest.class.getResourceAsStream("dijkstraData.txt"))),
+                CsrGraph.of(processInputMST(GraphsTest.class.getResourceAsStream("edges1.txt"))),
+                new CsrGraph(3, new int[0], new int[0], new long[0], true)
+            };
             
-            while((line = reader.readLine()) != null) {
+            for (CsrGraph csr : graphs) {
                 
-                String[] lineSplit = line.split("( )+|\t");
+                MappedGraph.write(csr, file);
+                MappedGraph mapped = MappedGraph.open(file);
                 
-                for (int i=1; i<lineSplit.length; i++) {
-                    
-                    String[] edgeSplit = lineSplit[i].split(",");
+                assertEquals(csr.isDirected(), mapped.isDirected());
+                assertEquals(csr.size(), mapped.size());
+                assertEquals(csr.getEdgeCount(), mapped.getEdgeCount());
+                assertEquals(csr.getArcCount(), mapped.getArcCount());
+                assertEquals(csr.getTotalEdgeCost(), mapped.getTotalEdgeCost());
+                
+                for (int v = 0; v < csr.size(); v++) {
                     
-                    DirectedGraph.DirectedEdge edge = g.createEdge(
-                            Integer.parseInt(lineSplit[0]) - 1,
-                            Integer.parseInt(edgeSplit[0]) - 1, 
-                            Integer.parseInt(edgeSplit[1]));
+                    assertEquals(csr.getArcStart(v), mapped.getArcStart(v));
+                    assertEquals(csr.getArcEnd(v), mapped.getArcEnd(v));
                     
-                    if (!g.getEdges().contains(edge)) {
-                        g.addEdge(edge);
+                    for (long arc = csr.getArcStart(v); arc < csr.getArcEnd(v); arc++) {
+                        assertEquals(csr.getTarget(arc), mapped.getTarget(arc));
+                        assertEquals(csr.getCost(arc), mapped.getCost(arc));
                     }
-                    //Logger.getLogger(GraphsTest.class.getName()).fine(edge.toString());
                 }
             }
             
-            return g;
+            Files.write(file, new byte[] {1, 2, 3});
             
-        } catch(IOException ex) {
-            Logger.getLogger(GraphsTest.class.getName())
-                    .log(Level.SEVERE, null, ex);
+            try {
+                MappedGraph.open(file);
+                Assert.fail();
+            } catch (IllegalArgumentException ex) {
+            }
+            
+        } finally {
+            Files.deleteIfExists(file);
         }
-        
-        return null;
     }
     
-    private Graph processInputMinCut(InputStream in) {
+    /**
+     * Test of class OffHeapGraph, and of the searches and algorithms on it.
+     */
+    @Test
+    public void testOffHeapGraph() {
+        System.out.println("offHeapGraph");
         
-        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+        DirectedGraph dg = processInputDijkstra(GraphsTest.class.getResourceAsStream("dijkstraData.txt"));
+        CsrGraph csr = CsrGraph.of(dg);
+        
+        for (OffHeapGraph offHeap : new OffHeapGraph[] {OffHeapGraph.copyOf(dg), 
+                OffHeapGraph.copyOf(csr)}) {
             
-            Graph g = new UndirectedGraph();
-            String line;
+            Assert.assertTrue(offHeap.isDirected());
+            assertEquals(csr.getEdgeCount(), offHeap.getEdgeCount());
+            assertEquals(csr.getTotalEdgeCost(), offHeap.getTotalEdgeCost());
             
-            while((line = reader.readLine()) != null) {
+            for (int v = 0; v < csr.size(); v++) {
                 
-                String[] lineSplit = line.split("( )+|\t");
+                assertEquals(csr.getArcStart(v), offHeap.getArcStart(v));
+                assertEquals(csr.getArcEnd(v), offHeap.getArcEnd(v));
                 
-                for (int i=1; i<lineSplit.length; i++) {
-                    
-                    Graph.Edge edge = g.createEdge(
-                            Integer.parseInt(lineSplit[0]) - 1,
-                            Integer.parseInt(lineSplit[i]) - 1, 1);
-                    
-                    Graph.Edge inverseEdge = edge.getReverse();
-                    
-                    if (!g.getEdges().contains(inverseEdge) && !g.getEdges().contains(edge)) {
-                        g.addEdge(edge);
-                    }
-                    //Logger.getLogger(GraphsTest.class.getName()).fine(edge.toString());
+                for (long arc = csr.getArcStart(v); arc < csr.getArcEnd(v); arc++) {
+                    assertEquals(csr.getTarget(arc), offHeap.getTarget(arc));
+                    assertEquals(csr.getCost(arc), offHeap.getCost(arc));
                 }
             }
             
-            return g;
+            Assert.assertArrayEquals(Graphs.dijkstra(dg, 0), Graphs.dijkstra(offHeap, 0));
             
-        } catch(IOException ex) {
-            Logger.getLogger(GraphsTest.class.getName())
-                    .log(Level.SEVERE, null, ex);
+            // arcs keep the order of the edges, so the searches agree
+            DFS expected = new DFS(dg);
+            expected.search(0);
+            DFS search = new DFS(offHeap);
+            search.search(0);
+            assertEquals(expected.getOrder(), search.getOrder());
+            assertEquals(expected.getPostOrder(), search.getPostOrder());
         }
         
-        return null;
+        UndirectedGraph g = processInputMST(GraphsTest.class.getResourceAsStream("edges1.txt"));
+        OffHeapGraph offHeap = OffHeapGraph.copyOf(g);
+        Assert.assertFalse(offHeap.isDirected());
+        assertEquals(2 * offHeap.getEdgeCount(), offHeap.getArcCount());
+        
+        long expCost = Graphs.getKruskalMST(g).getTotalEdgeCost();
+        assertEquals(expCost, Graphs.getKruskalMST(offHeap).getTotalEdgeCost());
+        assertEquals(expCost, Graphs.getPrimMST(offHeap).getTotalEdgeCost());
+        
+        String[] sccFiles = {"SCC-small1.txt", "SCC-small2.txt", 
+            "SCC-small3.txt", "SCC-small4.txt", "SCC-small5.txt"};
+        String[] expResults = {"3,3,3,0,0", "3,3,2,0,0", "3,3,1,1,0", 
+            "7,1,0,0,0", "6,3,2,1,0"};
+        
+        for (int i = 0; i < sccFiles.length; i++) {
+            
+            offHeap = OffHeapGraph.copyOf(processInputSCC(GraphsTest.class.getResourceAsStream(sccFiles[i])));
+            List<List<Integer>> sccs = Graphs.getStronglyConnectedComponents(offHeap);
+            assertEquals(expResults[i], getSCCSizesString(sccs, 5));
+        }
+        
+        OffHeapGraph.Builder builder = new OffHeapGraph.Builder(3, true);
+        builder.addEdge(0, 1, 5).addEdge(1, 2, 7).addEdge(0, 2, 20);
+        Assert.assertArrayEquals(new Integer[] {0, 5, 12}, 
+                Graphs.dijkstra(builder.build(), 0));
+        
+        try {
+            builder.addEdge(0, 3, 1);
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+        }
     }
     
-    private UndirectedGraph processInputMST(InputStream in) {
+    /**
+     * Test of the snapshots of class ConcurrentGraph, queried while edges 
+     * are added.
+     */
+    @Test
+    public void testConcurrentGraph() throws InterruptedException {
+        System.out.println("concurrentGraph");
+        
+        DirectedGraph dg = processInputDijkstra(GraphsTest.class.getResourceAsStream("dijkstraData.txt"));
+        ConcurrentGraph graph = new ConcurrentGraph(true);
+        dg.forEachEdge(graph::addEdge);
+        
+        ConcurrentGraph.Snapshot snapshot = graph.snapshot();
+        Integer[] expDistances = Graphs.dijkstra(dg, 0);
+        Assert.assertArrayEquals(expDistances, Graphs.dijkstra(snapshot, 0));
+        assertEquals(dg.getEdges().size(), snapshot.getEdgeCount());
+        assertEquals(dg.getTotalEdgeCost(), snapshot.getTotalEdgeCost());
+        
+        List<List<Integer>> expSccs = Graphs.getStronglyConnectedComponents(CsrGraph.of(dg));
+        assertEquals(expSccs, Graphs.getStronglyConnectedComponents(snapshot));
+        
+        Random random = new Random(4000);
+        int[] sources = new int[1000];
+        int[] targets = new int[1000];
+        long[] costs = new long[1000];
+        
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(300);
+            targets[i] = random.nextInt(300);
+            costs[i] = random.nextInt(10);
+        }
+        
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
         
-        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+        for (int r = 0; r < readers.length; r++) {
             
-            String line = reader.readLine();
-            Integer vertexCount;
+            readers[r] = new Thread(() -> {
+                
+                try {
+                    while (!done.get()) {
+                        
+                        // the arcs of a snapshot never change
+                        ConcurrentGraph.Snapshot s = graph.snapshot();
+                        long arcs = 0;
+                        
+                        for (int v = 0; v < s.size(); v++) {
+                            arcs += s.getDegree(v);
+                        }
+                        
+                        Integer[] distances = Graphs.dijkstra(s, 0);
+                        Assert.assertEquals(s.getEdgeCount(), arcs);
+                        Assert.assertEquals(s.size(), distances.length);
+                    }
+                    
+                } catch (Throwable ex) {
+                    failure.set(ex);
+                }
+            });
             
-            if (line.contains(" ")) {
-                String[] lineSplit = line.split(" ");
-                vertexCount = Integer.parseInt(lineSplit[0]);
-                //Integer edgeCount = Integer.parseInt(lineSplit[1]);
+            readers[r].start();
+        }
+        
+        for (int i = 0; i < sources.length; i += 10) {
             
+            if (i % 20 == 0) {
+                graph.addEdge(sources[i], targets[i], costs[i]);
+                
+                for (int j = i + 1; j < i + 10; j++) {
+                    graph.addEdge(sources[j], targets[j], costs[j]);
+                }
+                
             } else {
-                vertexCount = Integer.parseInt(line);
+                graph.addEdges(Arrays.copyOfRange(sources, i, i + 10), 
+                        Arrays.copyOfRange(targets, i, i + 10), 
+                        Arrays.copyOfRange(costs, i, i + 10));
             }
-            
-            UndirectedGraph g = new UndirectedGraph(vertexCount);
-            
-            while((line = reader.readLine()) != null) {
+        }
+        
+        done.set(true);
+        
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        
+        assertEquals(null, failure.get());
+        
+        // the old snapshot is isolated from the writes
+        Assert.assertArrayEquals(expDistances, Graphs.dijkstra(snapshot, 0));
+        assertEquals(dg.getEdges().size(), snapshot.getEdgeCount());
+        assertEquals(300, graph.snapshot().size());
+        assertEquals(dg.getEdges().size() + 1000, graph.snapshot().getEdgeCount());
+        
+        for (int i = 0; i < sources.length; i++) {
+            dg.addEdge(dg.createEdge(sources[i], targets[i], costs[i]));
+        }
+        
+        Assert.assertArrayEquals(Graphs.dijkstra(CsrGraph.of(dg), 0), 
+                Graphs.dijkstra(graph.snapshot(), 0));
+        
+        ConcurrentGraph undirected = new ConcurrentGraph(false);
+        undirected.addEdge(0, 1, 3);
+        List<Integer> neighbors = new ArrayList<>();
+        undirected.snapshot().forEachNeighbor(1, neighbors::add);
+        assertEquals(Collections.singletonList(0), neighbors);
+        
+        try {
+            undirected.addEdge(-1, 0, 1);
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        
+        try {
+            undirected.addEdge(0, Integer.MAX_VALUE, 1);
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        
+        // vertex 3 is isolated
+        undirected.addEdge(2, 4, 1);
+        
+        try {
+            undirected.snapshot().getNeighbor(3, 0);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException ex) {
+        }
+    }
+    
+    /**
+     * Test of the parallel chunked parsing, of class GraphReader.
+     */
+    @Test
+    public void testGraphReader() throws IOException {
+        System.out.println("graphReader");
+        
+        String[] files = {"kargerMinCut.txt", "edges1.txt", "clustering1.txt",
+            "SCC-small5.txt", "dijkstraData.txt"};
+        Format[] formats = {Format.ADJACENCY_LIST, Format.EDGE_LIST_WITH_HEADER,
+            Format.EDGE_LIST_WITH_HEADER, Format.EDGE_LIST, 
+            Format.WEIGHTED_ADJACENCY_LIST};
+        
+        Path file = Files.createTempFile("graph", ".txt");
+        
+        try {
+            for (int i = 0; i < files.length; i++) {
                 
-                String[] lineSplit = line.split(" ");
+                CsrGraph expected = new GraphReader(formats[i], Integer.MAX_VALUE)
+                        .readCsrGraph(GraphsTest.class.getResourceAsStream(files[i]), true);
                 
-                UndirectedGraph.UndirectedEdge edge = g.createEdge(Integer.parseInt(lineSplit[0]) - 1,
-                                    Integer.parseInt(lineSplit[1]) - 1, 
-                                    Integer.parseInt(lineSplit[2]));
+                Files.copy(GraphsTest.class.getResourceAsStream(files[i]), file,
+                        StandardCopyOption.REPLACE_EXISTING);
                 
-                g.addEdge(edge);
-                //Logger.getLogger(GraphsTest.class.getName()).fine(edge.toString());
+                for (int chunkSize : new int[] {1, 100, 4096}) {
+                    
+                    GraphReader reader = new GraphReader(formats[i], chunkSize);
+                    assertSameArcs(expected, reader.readCsrGraph(
+                            GraphsTest.class.getResourceAsStream(files[i]), true));
+                    assertSameArcs(expected, reader.readCsrGraph(file, true));
+                }
             }
             
-            return g;
+            // both sides of each edge are listed
+            CsrGraph minCut = new GraphReader(Format.ADJACENCY_LIST).readCsrGraph(
+                    GraphsTest.class.getResourceAsStream("kargerMinCut.txt"), false);
+            assertEquals(200, minCut.size());
+            assertEquals(minCut.getArcCount(), 2 * minCut.getEdgeCount());
             
-        } catch(IOException ex) {
-            Logger.getLogger(UndirectedGraph.class.getName()).log(Level.SEVERE, null, ex);
+            // edges listed by only one of their vertices are kept as well
+            UndirectedGraph oneSided = new GraphReader(Format.ADJACENCY_LIST, 4).readUndirectedGraph(
+                    new ByteArrayInputStream("1 2 3\n3 4\n4 1\n2 1 1\n".getBytes(StandardCharsets.US_ASCII)));
+            assertEquals(4, oneSided.getEdges().size());
+            assertEquals(Arrays.asList(1, 2, 3), oneSided.getConnectedVertices(0));
+            assertEquals(Arrays.asList(2, 0), oneSided.getConnectedVertices(3));
+            
+            CsrGraph mst = new GraphReader(Format.EDGE_LIST_WITH_HEADER).readCsrGraph(
+                    GraphsTest.class.getResourceAsStream("edges1.txt"), false);
+            assertEquals(500, mst.size());
+            assertEquals(2184, mst.getEdgeCount());
+            
+            int[] nodes = GraphReader.readBitStrings(
+                    GraphsTest.class.getResourceAsStream("greedy/clustering_small2.txt"));
+            Assert.assertArrayEquals(new int[] {0, 3}, nodes);
+            
+            // sparse 64-bit ids are mapped to dense labels in file order
+            Files.write(file, ("9000000000000 -5 4\n-5 77 2\n77 9000000000000 1\n"
+                    + "-5 9000000000000 3\n").getBytes(StandardCharsets.US_ASCII));
+            
+            VertexIdMap ids = new VertexIdMap();
+            CsrGraph sparse = new GraphReader(Format.EDGE_LIST, 1).readCsrGraph(file, true, ids);
+            assertEquals(3, sparse.size());
+            assertEquals(4, sparse.getEdgeCount());
+            assertEquals(9000000000000L, ids.getId(0));
+            assertEquals(-5L, ids.getId(1));
+            assertEquals(77L, ids.getId(2));
+            Assert.assertArrayEquals(new Integer[] {0, 4, 6}, Graphs.dijkstra(sparse, 0));
+            
+            // a later load keeps the labels of the ids already mapped
+            UndirectedGraph sparseGraph = new GraphReader(Format.EDGE_LIST).readUndirectedGraph(
+                    new ByteArrayInputStream("123 77 5\n".getBytes(StandardCharsets.US_ASCII)), ids);
+            assertEquals(4, ids.size());
+            assertEquals(4, sparseGraph.getVertexView().size());
+            assertEquals(Arrays.asList(3), sparseGraph.getConnectedVertices(2));
+            
+            sparseGraph.addEdge(ids, Long.MAX_VALUE, 123, 1);
+            assertEquals(5, ids.size());
+            assertEquals(Arrays.asList(2, 4), sparseGraph.getConnectedVertices(3));
+            
+            long expCost = Graphs.getKruskalMST(mst).getTotalEdgeCost();
+            sparse = new GraphReader(Format.EDGE_LIST_WITH_HEADER, 100).readCsrGraph(
+                    GraphsTest.class.getResourceAsStream("edges1.txt"), false, new VertexIdMap());
+            assertEquals(500, sparse.size());
+            assertEquals(expCost, Graphs.getKruskalMST(sparse).getTotalEdgeCost());
+            
+            Files.write(file, "1 2\n3 x\n".getBytes(StandardCharsets.US_ASCII));
+            
+            try {
+                new GraphReader(Format.EDGE_LIST).readCsrGraph(file, true);
+                Assert.fail();
+            } catch (IllegalArgumentException ex) {
+            }
+            
+        } finally {
+            Files.deleteIfExists(file);
         }
+    }
+    
+    private void assertSameArcs(CsrGraph expected, CsrGraph result) {
         
-        return null;
+        assertEquals(expected.size(), result.size());
+        assertEquals(expected.getArcCount(), result.getArcCount());
+        
+        for (int v = 0; v <= expected.size(); v++) {
+            assertEquals(expected.getArcStart(v), result.getArcStart(v));
+        }
+        
+        for (long arc = 0; arc < expected.getArcCount(); arc++) {
+            assertEquals(expected.getTarget(arc), result.getTarget(arc));
+            assertEquals(expected.getCost(arc), result.getCost(arc));
+        }
     }
     
-    private DirectedGraph processInputSCC(InputStream in) {
+    private String getDistancesString(Integer[] distances, int... vertices) {
         
-        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            
-            DirectedGraph g = new DirectedGraph();
-            String line;
+        StringBuilder builder = new StringBuilder("");
+        
+        for (int i=0; i<vertices.length; i++) {
+            if (i>0) {
+                builder.append(",");
+            }
             
-            while((line = reader.readLine()) != null) {
-                
-                String[] lineSplit = line.split(" ");
-                
-                DirectedGraph.DirectedEdge edge = g.createEdge(
-                        Integer.parseInt(lineSplit[0]) - 1,
-                        Integer.parseInt(lineSplit[1]) - 1, 1);
+            if (distances[vertices[i]-1] == null) {
+                builder.append(1000000);
                 
-                g.addEdge(edge);
-                //Logger.getLogger(GraphsTest.class.getName()).fine(edge.toString());
+            } else {
+                builder.append(distances[vertices[i]-1]);
             }
+        }
+        
+        return builder.toString();
+    }
+    
+    private String getSCCSizesString(List<List<Integer>> sccs, int count) {
+        String result = "";
+        
+        List<List<Integer>> ordered = new ArrayList<>();
+        
+        for (List<Integer> component: sccs) {
+            ordered.add(new ComparableArrayList(component));
+        }
+        
+        Collections.sort(ordered, Collections.reverseOrder());
+        
+        for (int i=0; i<count && i<ordered.size(); i++) {
             
-            return g;
+            if (i > 0) {
+                result += ",";
+            }
+            
+            result += ordered.get(i).size();
+        }
+        
+        for (int i=0; i<(count - ordered.size()); i++) {
+            
+            result += ",0";
+        }
+        
+        return result;
+    }
+    
+    private DirectedGraph processInputDijkstra(InputStream in) {
+        return readGraph(in, Format.WEIGHTED_ADJACENCY_LIST, true);
+    }
+    
+    private Graph processInputMinCut(InputStream in) {
+        return readGraph(in, Format.ADJACENCY_LIST, false);
+    }
+    
+    private UndirectedGraph processInputMST(InputStream in) {
+        return readGraph(in, Format.EDGE_LIST_WITH_HEADER, false);
+    }
+    
+    private DirectedGraph processInputSCC(InputStream in) {
+        return readGraph(in, Format.EDGE_LIST, true);
+    }
+    
+    private <T extends Graph> T readGraph(InputStream in, Format format, 
+            boolean directed) {
+        
+        try(InputStream input = in) {
+            
+            GraphReader reader = new GraphReader(format);
+            Graph g = directed ? reader.readDirectedGraph(input) 
+                    : reader.readUndirectedGraph(input);
+            return (T) g;
             
         } catch(IOException ex) {
-            Logger.getLogger(UndirectedGraph.class.getName()).log(Level.SEVERE, null, ex);
+            Logger.getLogger(GraphsTest.class.getName())
+                    .log(Level.SEVERE, null, ex);
         }
         
         return null;
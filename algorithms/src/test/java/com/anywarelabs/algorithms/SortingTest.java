@@ -27,7 +27,15 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.logging.Level;
@@ -93,6 +101,262 @@ public class SortingTest {
         System.out.println("Inversions: " + result);
     }
     
+    /**
+     * Test of mergeSort method for primitive arrays, of class Sorting.
+     */
+    @Test
+    public void testMergeSortPrimitiveArrays() {
+        System.out.println("mergeSort (primitive arrays)");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(1000);
+        
+        for (int size = 1; size <= 1000; size++) {
+            
+            List<Integer> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(random.nextInt(size + 1));
+            }
+            
+            int[] array = toArray(list);
+            long[] longArray = new long[size];
+            for (int i = 0; i < size; i++) {
+                longArray[i] = array[i];
+            }
+            
+            long expected = instance.mergeSort(list);
+            
+            assertEquals(expected, instance.mergeSort(array));
+            assertEquals(list, toList(array));
+            
+            assertEquals(expected, instance.mergeSort(longArray));
+            for (int i = 0; i < size; i++) {
+                assertEquals((long) list.get(i), longArray[i]);
+            }
+        }
+        
+        InputStream in = Sorting.class.getResourceAsStream("IntegerArray.txt");
+        int[] array = toArray(processInput(in));
+        assertEquals(2407905288L, instance.mergeSort(array));
+    }
+    
+    /**
+     * Test of sortBy method, of class Sorting.
+     */
+    @Test
+    public void testSortBy() {
+        System.out.println("sortBy");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(100000);
+        
+        for (int size : new int[] {0, 1, 10, 100000}) {
+            
+            long[][] items = new long[size][];
+            
+            for (int i = 0; i < size; i++) {
+                items[i] = new long[] {random.nextInt(100) - 50L, i};
+            }
+            
+            long[][] expected = items.clone();
+            // Arrays.sort on objects is stable
+            Arrays.sort(expected, (a, b) -> Long.compare(a[0], b[0]));
+            
+            List<Integer> keys = new ArrayList<>(size);
+            for (long[] item : items) {
+                keys.add((int) item[0]);
+            }
+            
+            long expectedInversions = size > 0 ? instance.mergeSort(keys) : 0;
+            
+            assertEquals(expectedInversions, 
+                    instance.sortBy(items, item -> item[0]));
+            assertArrayEquals(expected, items);
+        }
+    }
+    
+    /**
+     * Test of adaptiveMergeSort method, of class Sorting.
+     */
+    @Test
+    public void testAdaptiveMergeSort() {
+        System.out.println("adaptiveMergeSort");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(1000000);
+        
+        for (int size : new int[] {0, 1, 2, 31, 32, 33, 1000, 1000000}) {
+            
+            int[][] inputs = new int[5][size];
+            
+            for (int i = 0; i < size; i++) {
+                inputs[0][i] = random.nextInt();
+                inputs[1][i] = i;
+                inputs[2][i] = size - i;
+                inputs[3][i] = random.nextInt(4);
+                inputs[4][i] = (i / 1000) % 2 == 0 ? i : -i;
+            }
+            
+            // nearly sorted with a few swaps and an appended tail
+            for (int i = 0; i < size / 100; i++) {
+                int j = random.nextInt(size);
+                int aux = inputs[1][j];
+                inputs[1][j] = inputs[1][0];
+                inputs[1][0] = aux;
+            }
+            
+            for (int i = size - size / 10; i < size; i++) {
+                inputs[1][i] = random.nextInt(size);
+            }
+            
+            for (int[] input : inputs) {
+                
+                int[] expected = input.clone();
+                long expectedInversions = instance.mergeSort(expected);
+                
+                assertEquals(expectedInversions, 
+                        instance.adaptiveMergeSort(input));
+                assertArrayEquals(expected, input);
+            }
+        }
+        
+        InputStream in = Sorting.class.getResourceAsStream("IntegerArray.txt");
+        int[] array = toArray(processInput(in));
+        assertEquals(2407905288L, instance.adaptiveMergeSort(array));
+    }
+    
+    /**
+     * Test of parallelMergeSort method, of class Sorting.
+     */
+    @Test
+    public void testParallelMergeSort() {
+        System.out.println("parallelMergeSort");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(2000000);
+        int size = 2000000;
+        
+        for (int bound : new int[] {10, size}) {
+            
+            int[] array = new int[size];
+            for (int i = 0; i < size; i++) {
+                array[i] = random.nextInt(bound);
+            }
+            
+            int[] sequential = array.clone();
+            long expected = instance.mergeSort(sequential);
+            
+            assertEquals(expected, instance.parallelMergeSort(array, 100));
+            assertArrayEquals(sequential, array);
+        }
+        
+        InputStream in = Sorting.class.getResourceAsStream("IntegerArray.txt");
+        int[] array = toArray(processInput(in));
+        assertEquals(2407905288L, instance.parallelMergeSort(array));
+    }
+    
+    /**
+     * Test of externalMergeSort method, of class Sorting.
+     */
+    @Test
+    public void testExternalMergeSort() throws IOException {
+        System.out.println("externalMergeSort");
+        
+        Sorting instance = new Sorting();
+        Path input = Files.createTempFile("input", ".txt");
+        Path output = Files.createTempFile("output", ".txt");
+        
+        try {
+            // several runs and merge passes
+            long memoryBudget = 4 * ExternalMergeSort.BLOCK_SIZE;
+            
+            Files.copy(Sorting.class.getResourceAsStream("IntegerArray.txt"),
+                    input, StandardCopyOption.REPLACE_EXISTING);
+            long result = instance.externalMergeSort(input, output, 
+                    memoryBudget);
+            assertEquals(2407905288L, result);
+            
+            int[] expected = toArray(processInput(Files.newInputStream(input)));
+            Arrays.sort(expected);
+            assertArrayEquals(expected, 
+                    toArray(processInput(Files.newInputStream(output))));
+            
+            Random random = new Random(200000);
+            int[] array = new int[200000];
+            
+            for (int i = 0; i < array.length; i++) {
+                array[i] = random.nextInt(1000) - 500;
+            }
+            
+            array[0] = Integer.MAX_VALUE;
+            array[array.length - 1] = Integer.MIN_VALUE;
+            
+            StringBuilder builder = new StringBuilder();
+            
+            for (int i = 0; i < array.length; i++) {
+                builder.append(array[i]).append(i % 10 == 0 ? "\r\n" : " ");
+            }
+            
+            Files.write(input, builder.toString().getBytes());
+            
+            expected = array.clone();
+            long expectedInversions = instance.mergeSort(expected);
+            
+            result = instance.externalMergeSort(input, output, memoryBudget);
+            assertEquals(expectedInversions, result);
+            assertArrayEquals(expected, 
+                    toArray(processInput(Files.newInputStream(output))));
+            
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+    
+    /**
+     * Test of sortMappedFile method, of class Sorting.
+     */
+    @Test
+    public void testSortMappedFile() throws IOException {
+        System.out.println("sortMappedFile");
+        
+        Sorting instance = new Sorting();
+        Path file = Files.createTempFile("mapped", ".bin");
+        Random random = new Random(5000000);
+        
+        try {
+            // segment counts that end the merge passes in either mapping
+            for (int size : new int[] {0, 1, 1000, 
+                    2 * MappedFileSort.SEGMENT_SIZE + 7,
+                    4 * MappedFileSort.SEGMENT_SIZE + 7}) {
+                
+                int[] array = new int[size];
+                ByteBuffer bytes = ByteBuffer.allocate(size * Integer.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt();
+                    bytes.putInt(array[i]);
+                }
+                
+                Files.write(file, bytes.array());
+                instance.sortMappedFile(file);
+                
+                Arrays.sort(array);
+                IntBuffer sorted = ByteBuffer.wrap(Files.readAllBytes(file))
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                
+                assertEquals(size, sorted.remaining());
+                for (int i = 0; i < size; i++) {
+                    assertEquals(array[i], sorted.get(i));
+                }
+            }
+            
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
     /**
      * Test of quicksort method, of class Sorting.
      */
@@ -132,6 +396,358 @@ public class SortingTest {
         System.out.println("Inversions for pivot rule MEDIAN_OF_THREE: " + result);
     }
     
+    /**
+     * Test of quicksort method, of class Sorting, on adversarial inputs.
+     */
+    @Test
+    public void testQuicksortAdversarialInputs() {
+        System.out.println("quicksort (adversarial inputs)");
+        
+        Sorting instance = new Sorting();
+        int size = 1000000;
+        
+        for (Sorting.PivotStrategy strategy : Sorting.PivotStrategy.values()) {
+            
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = i;
+            }
+            
+            int[] expected = sorted.clone();
+            instance.quicksort(sorted, strategy);
+            assertArrayEquals(expected, sorted);
+            
+            int[] reversed = new int[size];
+            for (int i = 0; i < size; i++) {
+                reversed[i] = size - i - 1;
+            }
+            
+            instance.quicksort(reversed, strategy);
+            assertArrayEquals(expected, reversed);
+            
+            Random random = new Random(size);
+            int[] duplicates = new int[size];
+            for (int i = 0; i < size; i++) {
+                duplicates[i] = random.nextInt(4);
+            }
+            
+            expected = duplicates.clone();
+            Arrays.sort(expected);
+            instance.quicksort(duplicates, strategy);
+            assertArrayEquals(expected, duplicates);
+            
+            int[] randomArray = new int[size];
+            for (int i = 0; i < size; i++) {
+                randomArray[i] = random.nextInt();
+            }
+            
+            expected = randomArray.clone();
+            Arrays.sort(expected);
+            instance.quicksort(randomArray, strategy);
+            assertArrayEquals(expected, randomArray);
+        }
+    }
+    
+    /**
+     * Test of quicksort method for long and double arrays, of class Sorting.
+     */
+    @Test
+    public void testQuicksortPrimitiveArrays() {
+        System.out.println("quicksort (long and double arrays)");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(100000);
+        
+        for (Sorting.PivotStrategy strategy : Sorting.PivotStrategy.values()) {
+            
+            for (int size = 0; size <= 100000; size = size * 10 + 1) {
+                
+                long[] longs = new long[size];
+                double[] doubles = new double[size];
+                
+                for (int i = 0; i < size; i++) {
+                    longs[i] = random.nextLong() % 1000;
+                    doubles[i] = random.nextDouble() - 0.5;
+                }
+                
+                if (size > 2) {
+                    doubles[0] = Double.NaN;
+                    doubles[size / 2] = Double.NaN;
+                }
+                
+                long[] expectedLongs = longs.clone();
+                Arrays.sort(expectedLongs);
+                instance.quicksort(longs, strategy);
+                assertArrayEquals(expectedLongs, longs);
+                
+                double[] expectedDoubles = doubles.clone();
+                Arrays.sort(expectedDoubles);
+                instance.quicksort(doubles, strategy);
+                assertArrayEquals(expectedDoubles, doubles, 0);
+            }
+        }
+    }
+    
+    /**
+     * Test of quicksortWithStats method, of class Sorting.
+     */
+    @Test
+    public void testQuicksortWithStats() {
+        System.out.println("quicksortWithStats");
+        
+        Sorting instance = new Sorting();
+        int size = 1000000;
+        
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+        
+        int[] expected = sorted.clone();
+        int[] array = sorted.clone();
+        
+        long comparisons = instance.quicksort(array.clone(), 
+                Sorting.PivotStrategy.FIRST);
+        SortStats stats = instance.quicksortWithStats(array, 
+                Sorting.PivotStrategy.FIRST);
+        System.out.println(stats);
+        
+        assertArrayEquals(expected, array);
+        assertEquals(comparisons, stats.getComparisons());
+        assertTrue(stats.getSwaps() > 0);
+        assertTrue(stats.getMaxDepth() <= 2 * 20);
+        assertTrue(stats.getHeapsortFallbacks() > 0);
+        
+        // sorted input with the first elements as pivots is pathological
+        long[] histogram = stats.getImbalanceHistogram();
+        long partitions = 0;
+        for (long count : histogram) {
+            partitions += count;
+        }
+        
+        assertEquals(partitions, histogram[SortStats.HISTOGRAM_BUCKETS - 1]);
+        
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            array[i] = random.nextInt();
+        }
+        
+        stats = instance.quicksortWithStats(array, 
+                Sorting.PivotStrategy.MEDIAN_OF_THREE);
+        System.out.println(stats);
+        
+        assertEquals(0, stats.getHeapsortFallbacks());
+        assertTrue(stats.getComparisons() > 0);
+        assertTrue(stats.getElapsedNanos() > 0);
+    }
+    
+    /**
+     * Test of parallelQuicksort method, of class Sorting.
+     */
+    @Test
+    public void testParallelQuicksort() {
+        System.out.println("parallelQuicksort");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(2000000);
+        int size = 2000000;
+        
+        for (Sorting.PivotStrategy strategy : Sorting.PivotStrategy.values()) {
+            
+            int[] array = new int[size];
+            for (int i = 0; i < size; i++) {
+                array[i] = random.nextInt();
+            }
+            
+            int[] sequential = array.clone();
+            int[] expected = array.clone();
+            Arrays.sort(expected);
+            
+            long sequentialComparisons = instance.quicksort(sequential, strategy);
+            long result = instance.parallelQuicksort(array, strategy, 1000);
+            
+            assertArrayEquals(expected, array);
+            // the same partitioning steps run in both cases
+            assertEquals(sequentialComparisons, result);
+        }
+        
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+        
+        int[] expected = sorted.clone();
+        instance.parallelQuicksort(sorted, Sorting.PivotStrategy.FIRST);
+        assertArrayEquals(expected, sorted);
+    }
+    
+    /**
+     * Test of radixSort and sort methods, of class Sorting.
+     */
+    @Test
+    public void testRadixSort() {
+        System.out.println("radixSort");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(1000000);
+        
+        for (int size : new int[] {0, 1, 2, 100, 1000, 100000}) {
+            
+            for (int bound : new int[] {1, 256, 70000, Integer.MAX_VALUE}) {
+                
+                int[] array = new int[size];
+                long[] longArray = new long[size];
+                
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(bound) - bound / 2;
+                    longArray[i] = bound == Integer.MAX_VALUE 
+                            ? random.nextLong() : (long) array[i] << 20;
+                }
+                
+                int[] expected = array.clone();
+                Arrays.sort(expected);
+                long[] expectedLongs = longArray.clone();
+                Arrays.sort(expectedLongs);
+                
+                int[] copy = array.clone();
+                instance.radixSort(copy);
+                assertArrayEquals(expected, copy);
+                
+                instance.sort(array);
+                assertArrayEquals(expected, array);
+                
+                long[] longCopy = longArray.clone();
+                instance.radixSort(longCopy);
+                assertArrayEquals(expectedLongs, longCopy);
+                
+                instance.sort(longArray);
+                assertArrayEquals(expectedLongs, longArray);
+            }
+        }
+    }
+    
+    /**
+     * Test of select and multiSelect methods, of class Sorting.
+     */
+    @Test
+    public void testSelect() {
+        System.out.println("select");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(100000);
+        
+        for (int size : new int[] {1, 10, 100, 1000, 100000}) {
+            
+            for (int bound : new int[] {3, Integer.MAX_VALUE}) {
+                
+                int[] array = new int[size];
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(bound);
+                }
+                
+                int[] expected = array.clone();
+                Arrays.sort(expected);
+                
+                for (int k : new int[] {0, size / 4, size / 2, size - 1}) {
+                    
+                    int[] copy = array.clone();
+                    assertEquals(expected[k], instance.select(copy, k));
+                    assertEquals(expected[k], copy[k]);
+                    
+                    for (int i = 0; i < size; i++) {
+                        assertTrue(i <= k ? copy[i] <= copy[k] 
+                                : copy[i] >= copy[k]);
+                    }
+                }
+                
+                int[] ranks = {size - 1, 0, size / 2, size / 3, size / 2};
+                int[] result = instance.multiSelect(array, ranks);
+                
+                for (int i = 0; i < ranks.length; i++) {
+                    assertEquals(expected[ranks[i]], result[i]);
+                    assertEquals(expected[ranks[i]], array[ranks[i]]);
+                }
+            }
+        }
+        
+        // organ pipe input breaks median-of-three pivots
+        int size = 1000000;
+        int[] array = new int[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = i < size / 2 ? i : size - i;
+        }
+        
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        assertEquals(expected[size / 2], instance.select(array, size / 2));
+    }
+    
+    /**
+     * Test of partialSort methods, of class Sorting.
+     */
+    @Test
+    public void testPartialSort() {
+        System.out.println("partialSort");
+        
+        Sorting instance = new Sorting();
+        Random random = new Random(1000000);
+        
+        for (int size : new int[] {0, 1, 100, 100000}) {
+            
+            for (int bound : new int[] {5, Integer.MAX_VALUE}) {
+                
+                int[] array = new int[size];
+                Integer[] objects = new Integer[size];
+                
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(bound);
+                    objects[i] = array[i];
+                }
+                
+                int[] expected = array.clone();
+                Arrays.sort(expected);
+                
+                for (int k : new int[] {0, 1, size / 100, size / 2, size}) {
+                    
+                    if (k > size) {
+                        continue;
+                    }
+                    
+                    int[] copy = array.clone();
+                    instance.partialSort(copy, k);
+                    
+                    Integer[] objectCopy = objects.clone();
+                    instance.partialSort(objectCopy, k);
+                    
+                    Integer[] reversed = objects.clone();
+                    instance.partialSort(reversed, k, 
+                            Collections.reverseOrder());
+                    
+                    for (int i = 0; i < k; i++) {
+                        assertEquals(expected[i], copy[i]);
+                        assertEquals(expected[i], (int) objectCopy[i]);
+                        assertEquals(expected[size - i - 1], (int) reversed[i]);
+                    }
+                    
+                    Arrays.sort(copy);
+                    assertArrayEquals(expected, copy);
+                }
+            }
+        }
+        
+        // sorted input breaks the median-of-three quickselect pivots
+        Integer[] organPipe = new Integer[100000];
+        for (int i = 0; i < organPipe.length; i++) {
+            organPipe[i] = Math.min(i, organPipe.length - i);
+        }
+        
+        Integer[] expected = organPipe.clone();
+        Arrays.sort(expected);
+        instance.partialSort(organPipe, 50000);
+        assertArrayEquals(Arrays.copyOf(expected, 50000), 
+                Arrays.copyOf(organPipe, 50000));
+    }
+    
     private List shuffle(List list) {
         
         List<Integer> shuffled = new ArrayList<>(list.size());
@@ -0,0 +1,381 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms.datastructures;
+
+import com.anywarelabs.algorithms.datastructures.DirectedGraph.DirectedEdge;
+import com.anywarelabs.algorithms.datastructures.UndirectedGraph.UndirectedEdge;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.StreamSupport;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Marcio Fonseca
+ */
+public class GraphTest {
+    
+    public GraphTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of removeEdge, removeVertex and contractEdge methods, of class 
+     * UndirectedGraph.
+     */
+    @Test
+    public void testUndirectedRemoval() {
+        System.out.println("undirectedRemoval");
+        
+        Random random = new Random(1000);
+        UndirectedGraph g = new UndirectedGraph();
+        
+        // parallel edges and self loops included
+        for (int i = 0; i < 2000; i++) {
+            g.addEdge(g.createEdge(random.nextInt(100), random.nextInt(100), 
+                    random.nextInt(10)));
+        }
+        
+        assertConsistent(g);
+        
+        for (int i = 0; i < 500; i++) {
+            
+            List<UndirectedEdge> edges = g.getEdges();
+            UndirectedEdge edge = edges.get(random.nextInt(edges.size()));
+            
+            // an equal edge that is not stored is found by value
+            if (i % 2 == 0) {
+                edge = g.createEdge(edge.getEither(), 
+                        edge.getOther(edge.getEither()), edge.getCost());
+            }
+            
+            assertTrue(g.removeEdge(edge));
+            assertEquals(2000 - i - 1, g.getEdges().size());
+        }
+        
+        assertConsistent(g);
+        assertFalse(g.removeEdge(g.createEdge(0, 1, 100)));
+        
+        for (int label = 0; label < 10; label++) {
+            g.removeVertex(label);
+            assertFalse(g.hasVertex(label));
+        }
+        
+        assertConsistent(g);
+        
+        for (UndirectedEdge e : g.getEdges()) {
+            assertTrue(e.getEither() >= 10 && e.getOther(e.getEither()) >= 10);
+        }
+        
+        for (UndirectedEdge e : g.getEdges()) {
+            
+            if (e.getEither() == e.getOther(e.getEither())) {
+                g.removeEdge(e);
+            }
+        }
+        
+        // contraction never creates self loops
+        while (g.size() > 2 && !g.getEdges().isEmpty()) {
+            
+            List<UndirectedEdge> edges = g.getEdges();
+            int size = g.size();
+            g.contractEdge(edges.get(random.nextInt(edges.size())));
+            assertEquals(size - 1, g.size());
+            assertConsistent(g);
+            
+            for (UndirectedEdge e : g.getEdges()) {
+                assertFalse(e.getEither() == e.getOther(e.getEither()));
+            }
+        }
+    }
+    
+    /**
+     * Test of removeEdge, reverseEdge and contractEdge methods, of class 
+     * DirectedGraph.
+     */
+    @Test
+    public void testDirectedRemoval() {
+        System.out.println("directedRemoval");
+        
+        Random random = new Random(2000);
+        DirectedGraph g = new DirectedGraph();
+        
+        for (int i = 0; i < 2000; i++) {
+            g.addEdge(g.createEdge(random.nextInt(100), random.nextInt(100), 
+                    random.nextInt(10)));
+        }
+        
+        for (DirectedEdge e : g.getEdges()) {
+            
+            if (random.nextBoolean()) {
+                g.reverseEdge(e);
+            }
+        }
+        
+        assertConsistent(g);
+        
+        for (int i = 0; i < 500; i++) {
+            
+            List<DirectedEdge> edges = g.getEdges();
+            assertTrue(g.removeEdge(edges.get(random.nextInt(edges.size()))));
+        }
+        
+        assertConsistent(g);
+        g.removeVertex(0);
+        assertConsistent(g);
+        
+        DirectedEdge edge = g.getEdges().get(0);
+        
+        for (DirectedEdge e : g.getEdges()) {
+            
+            if (e.getSource() != e.getTarget()) {
+                edge = e;
+                break;
+            }
+        }
+        
+        int source = edge.getSource();
+        int target = edge.getTarget();
+        DirectedEdge reverse = edge.getReverse();
+        List<String> expEdges = new ArrayList<>();
+        
+        // copies of the edge and its reverse are dropped, edges leaving the 
+        // target move to the source and edges entering it are removed
+        for (DirectedEdge e : g.getEdges()) {
+            
+            if (e.equals(edge) || e.equals(reverse)) {
+                continue;
+            }
+            
+            if (e.getSource() == target) {
+                
+                if (e.getTarget() != target) {
+                    expEdges.add(source + " " + e.getTarget() + " " + e.getCost());
+                }
+                
+            } else if (e.getTarget() != target) {
+                expEdges.add(e.getSource() + " " + e.getTarget() + " " + e.getCost());
+            }
+        }
+        
+        g.contractEdge(edge);
+        assertConsistent(g);
+        assertFalse(g.hasVertex(target));
+        
+        List<String> contractedEdges = new ArrayList<>();
+        
+        for (DirectedEdge e : g.getEdges()) {
+            contractedEdges.add(e.getSource() + " " + e.getTarget() + " " + e.getCost());
+        }
+        
+        Collections.sort(expEdges);
+        Collections.sort(contractedEdges);
+        assertEquals(expEdges, contractedEdges);
+    }
+    
+    /**
+     * Test of the view and cursor methods, of class Graph.
+     */
+    @Test
+    public void testViews() {
+        System.out.println("views");
+        
+        Random random = new Random(3000);
+        
+        for (Graph g : new Graph[] {new UndirectedGraph(), new DirectedGraph()}) {
+            
+            for (int i = 0; i < 1000; i++) {
+                g.addEdge(g.createEdge(random.nextInt(50), random.nextInt(50), 
+                        random.nextInt(10)));
+            }
+            
+            List<Graph.Edge> view = g.getEdgeView();
+            assertEquals(g.getEdges(), view);
+            
+            try {
+                view.clear();
+                fail();
+            } catch (UnsupportedOperationException ex) {
+            }
+            
+            long[] sum = new long[1];
+            g.forEachEdge((source, target, cost) -> sum[0] += cost);
+            assertEquals(g.getTotalEdgeCost(), sum[0]);
+            
+            long parallelSum = StreamSupport.stream(g.edgeSpliterator(), true)
+                    .mapToLong(e -> ((Graph.Edge) e).getCost()).sum();
+            assertEquals(sum[0], parallelSum);
+            
+            for (int v = 0; v < 50; v++) {
+                
+                if (g.hasVertex(v)) {
+                    List<Integer> neighbors = new ArrayList<>();
+                    g.forEachNeighbor(v, neighbors::add);
+                    assertEquals(g.getConnectedVertices(v), neighbors);
+                }
+            }
+            
+            // views are live
+            g.removeEdge(view.get(0));
+            assertEquals(999, view.size());
+            assertEquals(g.getVertices(), g.getVertexView());
+        }
+    }
+    
+    /**
+     * Test of getTransposeView method, of class DirectedGraph.
+     */
+    @Test
+    public void testTransposeView() {
+        System.out.println("transposeView");
+        
+        Random random = new Random(5000);
+        DirectedGraph g = new DirectedGraph();
+        DirectedGraph reversed = new DirectedGraph();
+        
+        for (int i = 0; i < 1000; i++) {
+            
+            int source = random.nextInt(50);
+            int target = random.nextInt(50);
+            int cost = random.nextInt(10);
+            g.addEdge(g.createEdge(source, target, cost));
+            reversed.addEdge(reversed.createEdge(target, source, cost));
+        }
+        
+        TraversableGraph view = g.getTransposeView();
+        List<DirectedEdge> edges = g.getEdges();
+        
+        for (int v = 0; v < 50; v++) {
+            
+            // edges entering a vertex keep the order in which they were added
+            List<Integer> neighbors = new ArrayList<>();
+            view.forEachNeighbor(v, neighbors::add);
+            assertEquals(reversed.getConnectedVertices(v), neighbors);
+            assertEquals(reversed.getDegree(v), view.getDegree(v));
+            
+            for (int i = 0; i < view.getDegree(v); i++) {
+                assertEquals(reversed.getNeighbor(v, i), view.getNeighbor(v, i));
+                assertEquals(reversed.getNeighborCost(v, i), 
+                        view.getNeighborCost(v, i));
+            }
+        }
+        
+        assertEquals(edges, g.getEdges());
+        
+        // the view is live
+        DirectedEdge edge = edges.get(0);
+        int degree = view.getDegree(edge.getTarget());
+        g.removeEdge(edge);
+        assertEquals(degree - 1, view.getDegree(edge.getTarget()));
+    }
+    
+    /**
+     * Test of costs that do not fit in an int, of class Graph.
+     */
+    @Test
+    public void testLongCosts() {
+        System.out.println("longCosts");
+        
+        long big = 3L * Integer.MAX_VALUE;
+        UndirectedGraph g = new UndirectedGraph();
+        g.addEdge(g.createEdge(0, 1, big));
+        g.addEdge(g.createEdge(1, 2, big));
+        g.addEdge(g.createEdge(0, 2, 1));
+        
+        assertEquals(2 * big + 1, g.getTotalEdgeCost());
+        assertConsistent(g);
+        
+        UndirectedEdge edge = g.getEdges().get(2);
+        assertTrue(edge.compareTo(g.getEdges().get(0)) < 0);
+        
+        // changing the cost of a stored edge updates the total
+        edge.setCost(big + 1);
+        assertEquals(3 * big + 1, g.getTotalEdgeCost());
+        assertConsistent(g);
+        assertTrue(edge.compareTo(g.getEdges().get(0)) > 0);
+        
+        assertTrue(g.removeEdge(g.createEdge(0, 1, big)));
+        assertEquals(2 * big + 1, g.getTotalEdgeCost());
+        assertEquals(g.createEdge(1, 2, big), g.getEdges().get(1));
+        assertConsistent(g);
+    }
+    
+    /**
+     * Checks the edge handles and the total cost against the edge list.
+     */
+    private static <T extends Graph<T>.Edge> void assertConsistent(Graph<T> g) {
+        
+        long cost = 0;
+        int slots = 0;
+        
+        for (int i = 0; i < g.edges.size(); i++) {
+            
+            T e = g.edges.get(i);
+            assertSame(g, e.owner);
+            assertEquals(i, e.index);
+            assertSame(e, g.getVertex(e.first()).edges.get(e.firstSlot));
+            
+            Graph<T>.Vertex second = g.getVertex(e.second());
+            List<T> list = g.isDirected() ? second.incoming : second.edges;
+            assertSame(e, list.get(e.secondSlot));
+            
+            cost += e.getCost();
+            slots += 2;
+        }
+        
+        int listed = 0;
+        
+        for (Graph<T>.Vertex v : g.vertices) {
+            
+            if (v != null) {
+                listed += v.getEdges().size() + v.getIncoming().size();
+            }
+        }
+        
+        assertEquals(slots, listed);
+        assertEquals(cost, g.getTotalEdgeCost());
+    }
+}
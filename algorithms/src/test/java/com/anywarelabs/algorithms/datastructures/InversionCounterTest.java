@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms.datastructures;
+
+import com.anywarelabs.algorithms.Sorting;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Marcio Fonseca
+ */
+public class InversionCounterTest {
+    
+    public InversionCounterTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of add and addAll methods, of class InversionCounter.
+     */
+    @Test
+    public void testGetInversions() {
+        System.out.println("getInversions");
+        
+        Sorting sorting = new Sorting();
+        Random random = new Random(100000);
+        int size = 100000;
+        
+        for (int bound : new int[] {10, Integer.MAX_VALUE}) {
+            
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(bound) - bound / 2;
+            }
+            
+            InversionCounter compressed = InversionCounter.forKeys(values);
+            InversionCounter dynamic = InversionCounter.dynamic();
+            
+            int added = 0;
+            
+            while (added < size) {
+                
+                int batch = Math.min(size - added, random.nextInt(10000));
+                
+                if (batch == 1) {
+                    compressed.add(values[added]);
+                    dynamic.add(values[added]);
+                    
+                } else {
+                    compressed.addAll(values, added, added + batch);
+                    dynamic.addAll(values, added, added + batch);
+                }
+                
+                added += batch;
+                
+                int[] prefix = Arrays.copyOf(values, added);
+                long expected = sorting.mergeSort(prefix);
+                
+                assertEquals(added, compressed.getCount());
+                assertEquals(expected, compressed.getInversions());
+                assertEquals(expected, dynamic.getInversions());
+            }
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey() {
+        InversionCounter.forKeys(new int[] {1, 2, 3}).add(4);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Marcio Fonseca.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.anywarelabs.algorithms.datastructures;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Marcio Fonseca
+ */
+public class VertexIdMapTest {
+    
+    public VertexIdMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of getOrAdd, get and getId methods, of class VertexIdMap.
+     */
+    @Test
+    public void testGetOrAdd() {
+        System.out.println("getOrAdd");
+        
+        Random random = new Random(6000);
+        VertexIdMap instance = new VertexIdMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        
+        long[] special = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE};
+        
+        for (int i = 0; i < 100000; i++) {
+            
+            // sparse ids, ids sharing their low bits, and repeated ids
+            long id = i < special.length ? special[i]
+                    : i % 3 == 0 ? random.nextLong() 
+                    : i % 3 == 1 ? (long) random.nextInt(1000) << 40 
+                    : random.nextInt(50000);
+            
+            Integer label = expected.get(id);
+            
+            if (label == null) {
+                label = expected.size();
+                expected.put(id, label);
+            }
+            
+            assertEquals((int) label, instance.getOrAdd(id));
+        }
+        
+        assertEquals(expected.size(), instance.size());
+        
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            
+            assertEquals((int) entry.getValue(), instance.get(entry.getKey()));
+            assertEquals((long) entry.getKey(), instance.getId(entry.getValue()));
+        }
+        
+        assertEquals(-1, instance.get(12345L << 40 | 1));
+        assertFalse(instance.contains(12345L << 40 | 1));
+        assertTrue(instance.contains(Long.MIN_VALUE));
+        
+        try {
+            instance.getId(instance.size());
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+        }
+        
+        VertexIdMap sized = new VertexIdMap(1000);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, sized.getOrAdd(i * 7919L));
+        }
+        
+        assertEquals(999, sized.get(999 * 7919L));
+    }
+}